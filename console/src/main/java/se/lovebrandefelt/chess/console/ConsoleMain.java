@@ -26,7 +26,7 @@ public class ConsoleMain {
     }
     while (game.state() == IN_PROGRESS) {
       System.out.println(boardToString(game.getBoard()));
-      if (game.getBoard().kingInCheck(game.getCurrentPlayer())) {
+      if (game.inCheck()) {
         System.out.println(game.getCurrentPlayer() + "'s turn - In Check");
       } else {
         System.out.println(game.getCurrentPlayer() + "'s turn");
@@ -82,7 +82,7 @@ public class ConsoleMain {
       String rowString = String.format("%-2s", Pos.rowToString(row));
       stringBuilder.append(rowString);
       for (int col = 0; col < board.cols(); col++) {
-        Pos pos = new Pos(row, col);
+        Pos pos = Pos.of(row, col);
         if (board.isEmpty(pos)) {
           stringBuilder.append("- ");
         } else {
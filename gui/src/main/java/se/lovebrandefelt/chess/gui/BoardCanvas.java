@@ -45,7 +45,7 @@ public class BoardCanvas extends Canvas {
       graphicsContext.clearRect(0, 0, getWidth(), getHeight());
       for (int row = 0; row < board.rows(); row++) {
         for (int col = 0; col < board.cols(); col++) {
-          Pos pos = new Pos(row, col);
+          Pos pos = Pos.of(row, col);
           double x = (col + 1) * squareSize;
           double y = getHeight() - ((row + 1) * squareSize) - squareSize;
           if ((row + col) % 2 == 0) {
@@ -91,7 +91,7 @@ public class BoardCanvas extends Canvas {
     if (SCENE.getGame().state() == IN_PROGRESS) {
       int row = board.rows() - (int) (mouseEvent.getY() / squareSize);
       int col = (int) (mouseEvent.getX() / squareSize) - 1;
-      Pos pos = new Pos(row, col);
+      Pos pos = Pos.of(row, col);
       if (selected == null) {
         if (board.isInsideBounds(pos)
             && !board.isEmpty(pos)
@@ -30,7 +30,7 @@ public class GameScene extends Scene {
     canvas.draw();
     switch (game.state()) {
       case IN_PROGRESS:
-        if (game.getBoard().kingInCheck(game.getCurrentPlayer())) {
+        if (game.inCheck()) {
           GUI.PRIMARY_STAGE.setTitle("Chess - " + game.getCurrentPlayer() + "'s turn - In Check");
         } else {
           GUI.PRIMARY_STAGE.setTitle("Chess - " + game.getCurrentPlayer() + "'s turn");
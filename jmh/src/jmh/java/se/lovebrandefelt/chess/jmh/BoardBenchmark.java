@@ -0,0 +1,72 @@
+package se.lovebrandefelt.chess.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import se.lovebrandefelt.chess.Board;
+import se.lovebrandefelt.chess.Color;
+import se.lovebrandefelt.chess.Game;
+import se.lovebrandefelt.chess.PackedMove;
+import se.lovebrandefelt.chess.Pos;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardBenchmark {
+  @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+  private Fixture fixture;
+
+  private Board board;
+  private Color sideToMove;
+  private Pos kingPos;
+  private int[] moves;
+  private int moveCount;
+  private int nextMove;
+
+  /** Sets up the board of the fixture and the legal moves to make on it. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    Game game = fixture.game();
+    board = game.getBoard();
+    sideToMove = board.getSideToMove();
+    kingPos =
+        board
+            .getPieces()
+            .get(sideToMove)
+            .stream()
+            .filter((piece) -> piece.getTypeId() == 'K')
+            .findFirst()
+            .orElseThrow(IllegalStateException::new)
+            .getPos();
+    moves = new int[PackedMove.MAX_MOVES];
+    moveCount = game.legalMoves(moves);
+    nextMove = 0;
+  }
+
+  @Benchmark
+  public boolean kingInCheck() {
+    return board.kingInCheck(sideToMove);
+  }
+
+  @Benchmark
+  public boolean isThreatened() {
+    return board.isThreatened(kingPos, sideToMove.next());
+  }
+
+  /** Makes and undoes each legal move of the fixture in turn. */
+  @Benchmark
+  public long moveUndoMove() {
+    board.move(board.toMove(moves[nextMove]));
+    long key = board.getKey();
+    board.undoMove();
+    nextMove = (nextMove + 1) % moveCount;
+    return key;
+  }
+}
@@ -0,0 +1,55 @@
+package se.lovebrandefelt.chess.jmh;
+
+import static se.lovebrandefelt.chess.Color.WHITE;
+
+import se.lovebrandefelt.chess.Fen;
+import se.lovebrandefelt.chess.Game;
+
+/** The positions the benchmarks are run on. */
+public enum Fixture {
+  /** The Ruy Lopez after 3... a6, with white to move. */
+  OPENING("Ba4", "e4", "e5", "Nf3", "Nc6", "Bb5", "a6"),
+
+  /** A quiet Italian game after ten moves, with white to move. */
+  MIDDLEGAME(
+      "Nf1", "e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5", "c3", "Nf6", "d3", "d6", "O-O", "O-O", "Re1",
+      "a6", "Bb3", "Ba7", "h3", "h6", "Nbd2", "Re8"),
+
+  /** A rook endgame with four pawns each and no castling rights, with white to move. */
+  ENDGAME("Rd7");
+
+  private static final String ENDGAME_FEN = "1r6/5pkp/6p1/1p6/P7/6P1/5PKP/3R4 w - - 0 1";
+
+  private final String nextMove;
+  private final String[] moves;
+
+  Fixture(String nextMove, String... moves) {
+    this.nextMove = nextMove;
+    this.moves = moves;
+  }
+
+  /**
+   * Returns a new game in the position of this fixture.
+   *
+   * @return a new game in the position of this fixture
+   */
+  public Game game() {
+    if (this == ENDGAME) {
+      return new Game(Fen.parse(ENDGAME_FEN), WHITE);
+    }
+    Game game = new Game(Game.standardSetup(), WHITE);
+    for (String move : moves) {
+      game.makeMove(move);
+    }
+    return game;
+  }
+
+  /**
+   * Returns a legal move in chess notation for the side to move in the position of this fixture.
+   *
+   * @return a legal move in chess notation
+   */
+  public String nextMove() {
+    return nextMove;
+  }
+}
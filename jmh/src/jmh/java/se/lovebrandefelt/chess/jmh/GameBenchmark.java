@@ -0,0 +1,73 @@
+package se.lovebrandefelt.chess.jmh;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import se.lovebrandefelt.chess.Game;
+import se.lovebrandefelt.chess.Move;
+import se.lovebrandefelt.chess.PackedMove;
+import se.lovebrandefelt.chess.Pos;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameBenchmark {
+  @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+  private Fixture fixture;
+
+  private Game game;
+  private int[] moves;
+  private int firstMove;
+
+  /** Sets up the game of the fixture and finds a legal move to make in it. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    game = fixture.game();
+    moves = new int[PackedMove.MAX_MOVES];
+    game.legalMoves(moves);
+    firstMove = moves[0];
+  }
+
+  /**
+   * Makes and undoes a move before each invocation, which drops the legal move map and the state
+   * the game remembers for the position. The moves of pieces the move did not affect stay in the
+   * per square move cache, so the benchmarks measure generating moves as it happens between moves
+   * in a game rather than from an empty cache.
+   */
+  @Setup(Level.Invocation)
+  public void clearCache() {
+    game.move(firstMove);
+    game.undoMove();
+  }
+
+  @Benchmark
+  public Map<Pos, Map<Pos, Move>> legalMoves() {
+    return game.legalMoves();
+  }
+
+  @Benchmark
+  public int packedLegalMoves() {
+    return game.legalMoves(moves);
+  }
+
+  @Benchmark
+  public Game.State state() {
+    return game.state();
+  }
+
+  /** Makes the next move of the fixture in chess notation and undoes it. */
+  @Benchmark
+  public Game makeMove() {
+    game.makeMove(fixture.nextMove());
+    game.undoMove();
+    return game;
+  }
+}
@@ -0,0 +1,24 @@
+package se.lovebrandefelt.chess.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import se.lovebrandefelt.chess.Pos;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PosBenchmark {
+  @Param({"e4", "h8", "aa10"})
+  private String posString;
+
+  @Benchmark
+  public Pos parse() {
+    return new Pos(posString);
+  }
+}
@@ -0,0 +1,290 @@
+package se.lovebrandefelt.chess.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import se.lovebrandefelt.chess.Fen;
+
+/**
+ * Hosts many games at once for clients connecting over TCP on the loopback interface. Each game is
+ * a {@link GameSession} whose actions run one at a time on a small shared thread pool, so thousands
+ * of games need no more threads than there are cores.
+ *
+ * <p>Clients send one command per line and receive one response per command, in the order the
+ * commands were sent. A response starts with "ok" or "error". The commands are:
+ *
+ * <ul>
+ *   <li>{@code new [fen]} starts a game and responds with its id
+ *   <li>{@code move <id> <move>} makes a move and responds with it in SAN and the new game state
+ *   <li>{@code undo <id>} takes back the last move
+ *   <li>{@code legal <id>} responds with the legal moves in UCI notation
+ *   <li>{@code fen <id>} responds with the FEN string of the position
+ *   <li>{@code stats [id]} responds with move counts and latencies of a game or of the server
+ *   <li>{@code close <id>} ends a game
+ *   <li>{@code quit} closes the connection
+ * </ul>
+ *
+ * <p>Commands may be pipelined. A connection may have a fixed number of commands in progress, after
+ * which the server stops reading from it until responses have been written, and a game whose
+ * mailbox is full answers "error busy" instead of queueing more work.
+ */
+public class GameServer implements Closeable {
+  private static final int MAX_PENDING_COMMANDS = 256;
+
+  private final int port;
+  private final int mailboxCapacity;
+  private final long idleNanos;
+  private final ExecutorService pool;
+  private final ScheduledExecutorService sweeper;
+  private final Map<Long, GameSession> sessions;
+  private final AtomicLong nextId;
+  private final LatencyStats stats;
+  private final LongAdder rejected;
+  private final LongAdder evicted;
+  private ServerSocket serverSocket;
+
+  /**
+   * Creates a new server.
+   *
+   * @param port the port to listen on, or 0 for any free port
+   * @param threads the number of threads running game actions
+   * @param mailboxCapacity the maximum number of waiting actions per game
+   * @param idleMillis the time in milliseconds after which an unused game is evicted
+   */
+  public GameServer(int port, int threads, int mailboxCapacity, long idleMillis) {
+    this.port = port;
+    this.mailboxCapacity = mailboxCapacity;
+    idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    pool = Executors.newFixedThreadPool(threads, daemonThreads("game-worker"));
+    sweeper = Executors.newSingleThreadScheduledExecutor(daemonThreads("game-sweeper"));
+    sessions = new ConcurrentHashMap<>();
+    nextId = new AtomicLong(1);
+    stats = new LatencyStats();
+    rejected = new LongAdder();
+    evicted = new LongAdder();
+  }
+
+  /**
+   * Starts listening for connections and evicting idle games.
+   *
+   * @throws IOException if the server socket can not be opened
+   */
+  public void start() throws IOException {
+    serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    long period = Math.max(TimeUnit.NANOSECONDS.toMillis(idleNanos) / 2, 1);
+    sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    Thread acceptor = new Thread(this::accept, "game-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the port the server is listening on.
+   *
+   * @return the port the server is listening on
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Stops accepting connections and stops every thread of the server. */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    sweeper.shutdownNow();
+    pool.shutdownNow();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        Thread connection = new Thread(() -> serve(socket), "game-connection");
+        connection.setDaemon(true);
+        connection.start();
+      } catch (IOException e) {
+        // The server socket was closed, or the connection failed before it was handed over
+      }
+    }
+  }
+
+  // Reads commands from one connection. Responses are chained so that each is written after the
+  // one before it, whichever game thread completes it.
+  private void serve(Socket socket) {
+    try (Socket connection = socket;
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out =
+            new PrintWriter(
+                new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+      Semaphore pending = new Semaphore(MAX_PENDING_COMMANDS);
+      CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+      String line;
+      while ((line = in.readLine()) != null && !line.trim().equals("quit")) {
+        pending.acquire();
+        CompletableFuture<String> response = run(line.trim().split("\\s+"));
+        written =
+            written.thenCombine(
+                response,
+                (previous, text) -> {
+                  out.print(text);
+                  out.print('\n');
+                  out.flush();
+                  pending.release();
+                  return null;
+                });
+      }
+      pending.acquire(MAX_PENDING_COMMANDS);
+    } catch (IOException e) {
+      // The client went away, and its games stay until they are closed
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private CompletableFuture<String> run(String[] tokens) {
+    try {
+      switch (tokens[0]) {
+        case "new":
+          return done(newGame(tokens));
+        case "move":
+          if (tokens.length != 3) {
+            return done("error usage: move <id> <move>");
+          }
+          return submit(tokens, () -> "ok " + session(tokens).move(tokens[2]));
+        case "undo":
+          return submit(
+              tokens,
+              () -> {
+                session(tokens).undo();
+                return "ok";
+              });
+        case "legal":
+          return submit(tokens, () -> ("ok " + session(tokens).legalMoves()).trim());
+        case "fen":
+          return submit(tokens, () -> "ok " + session(tokens).fen());
+        case "stats":
+          if (tokens.length == 1) {
+            return done(
+                "ok "
+                    + stats
+                    + " games="
+                    + sessions.size()
+                    + " evicted="
+                    + evicted.sum()
+                    + " rejected="
+                    + rejected.sum());
+          }
+          return done("ok " + session(tokens).getStats());
+        case "close":
+          return done(sessions.remove(session(tokens).getId()) != null ? "ok" : "error closed");
+        default:
+          return done("error unknown command " + tokens[0]);
+      }
+    } catch (IllegalArgumentException e) {
+      return done("error " + e.getMessage());
+    }
+  }
+
+  private String newGame(String[] tokens) {
+    StringBuilder fen = new StringBuilder();
+    for (int i = 1; i < tokens.length; i++) {
+      fen.append(i == 1 ? "" : " ").append(tokens[i]);
+    }
+    long id = nextId.getAndIncrement();
+    GameSession session =
+        new GameSession(
+            id,
+            fen.length() == 0 ? Fen.STANDARD_SETUP : fen.toString(),
+            pool,
+            mailboxCapacity,
+            stats);
+    sessions.put(id, session);
+    return "ok " + id;
+  }
+
+  // Runs an action on the serial executor of the game named by the command
+  private CompletableFuture<String> submit(String[] tokens, Supplier<String> action) {
+    GameSession session = session(tokens);
+    try {
+      return session
+          .submit(action)
+          .handle(
+              (response, failure) -> {
+                if (failure == null) {
+                  return response;
+                }
+                Throwable cause =
+                    failure instanceof CompletionException ? failure.getCause() : failure;
+                return "error " + cause.getMessage();
+              });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      return done("error busy");
+    }
+  }
+
+  private GameSession session(String[] tokens) {
+    if (tokens.length < 2) {
+      throw new IllegalArgumentException("missing game id");
+    }
+    GameSession session;
+    try {
+      session = sessions.get(Long.parseLong(tokens[1]));
+    } catch (NumberFormatException e) {
+      session = null;
+    }
+    if (session == null) {
+      throw new IllegalArgumentException("unknown game " + tokens[1]);
+    }
+    return session;
+  }
+
+  private void evictIdle() {
+    long now = System.nanoTime();
+    for (GameSession session : sessions.values()) {
+      if (session.isIdle(now, idleNanos)) {
+        try {
+          session.evictLater(evicted::increment);
+        } catch (RejectedExecutionException e) {
+          // The game is busy, so it is not idle
+        }
+      }
+    }
+  }
+
+  private static CompletableFuture<String> done(String response) {
+    return CompletableFuture.completedFuture(response);
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
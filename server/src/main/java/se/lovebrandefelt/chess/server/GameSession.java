@@ -0,0 +1,220 @@
+package se.lovebrandefelt.chess.server;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import se.lovebrandefelt.chess.Board;
+import se.lovebrandefelt.chess.Fen;
+import se.lovebrandefelt.chess.Game;
+import se.lovebrandefelt.chess.Notation;
+import se.lovebrandefelt.chess.PackedMove;
+
+/**
+ * A game hosted by a {@link GameServer}. Every action on the game runs on the serial executor of
+ * the session, so the game is only ever touched by one thread at a time and needs no locks.
+ *
+ * <p>A session that has been idle for a while can be evicted, which drops the game and keeps only
+ * the starting FEN string and the moves made as packed ints. The game is replayed from these the
+ * next time it is used, so an evicted game takes a few bytes per move instead of a full board with
+ * its move caches.
+ */
+final class GameSession {
+  private final long id;
+  private final String startFen;
+  private final SerialExecutor executor;
+  private final LatencyStats stats;
+  private final LatencyStats serverStats;
+  private volatile long lastUsed;
+  private volatile boolean resident;
+
+  private Game game;
+  private Notation notation;
+  private int[] moves;
+  private int moveCount;
+
+  /**
+   * Creates a new session for a game starting in the position of the specified FEN string.
+   *
+   * @param id the id of the session
+   * @param startFen the FEN string of the starting position
+   * @param executor the executor to run actions on
+   * @param mailboxCapacity the maximum number of waiting actions
+   * @param serverStats the statistics of the whole server, updated on every move
+   * @throws IllegalArgumentException if the string is not a valid FEN string
+   */
+  GameSession(
+      long id,
+      String startFen,
+      Executor executor,
+      int mailboxCapacity,
+      LatencyStats serverStats) {
+    this.id = id;
+    this.startFen = startFen;
+    this.executor = new SerialExecutor(executor, mailboxCapacity);
+    this.serverStats = serverStats;
+    stats = new LatencyStats();
+    moves = new int[16];
+    lastUsed = System.nanoTime();
+    restore();
+  }
+
+  /**
+   * Runs the specified action on the serial executor of this session.
+   *
+   * @param action the action to run
+   * @param <T> the type of the result of the action
+   * @return a future completed with the result of the action, or with the exception it threw
+   * @throws RejectedExecutionException if the mailbox of this session is full
+   */
+  <T> CompletableFuture<T> submit(Supplier<T> action) {
+    lastUsed = System.nanoTime();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    executor.execute(
+        () -> {
+          try {
+            result.complete(action.get());
+          } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Makes the specified move, given in SAN, LAN or UCI notation. Must be called on the executor of
+   * this session.
+   *
+   * @param text the move
+   * @return the move in SAN followed by the state of the game after it
+   * @throws se.lovebrandefelt.chess.IllegalMoveException if the move is not a legal move
+   */
+  String move(String text) {
+    long start = System.nanoTime();
+    Game game = game();
+    if (game.state() != Game.State.IN_PROGRESS) {
+      throw new IllegalStateException("Game is over");
+    }
+    int move = notation.parse(text, 0, text.length());
+    String san = notation.san(move);
+    game.move(move);
+    if (moveCount == moves.length) {
+      moves = Arrays.copyOf(moves, moveCount * 2);
+    }
+    moves[moveCount++] = move;
+    String result = san + " " + game.state();
+    long nanos = System.nanoTime() - start;
+    stats.record(nanos);
+    serverStats.record(nanos);
+    return result;
+  }
+
+  /**
+   * Takes back the last move. Must be called on the executor of this session.
+   *
+   * @throws IllegalStateException if no move has been made
+   */
+  void undo() {
+    if (moveCount == 0) {
+      throw new IllegalStateException("No move to take back");
+    }
+    game().undoMove();
+    moveCount--;
+  }
+
+  /**
+   * Returns the legal moves in UCI notation, separated by spaces. Must be called on the executor
+   * of this session.
+   *
+   * @return the legal moves
+   */
+  String legalMoves() {
+    Game game = game();
+    Board board = game.getBoard();
+    int size =
+        board.getPieces().get(game.getCurrentPlayer()).size() * PackedMove.maxPieceMoves(board);
+    int[] legal = new int[size];
+    int count = game.legalMoves(legal);
+    StringBuilder text = new StringBuilder(count * 6);
+    for (int i = 0; i < count; i++) {
+      text.append(i == 0 ? "" : " ").append(Notation.uci(board, legal[i]));
+    }
+    return text.toString();
+  }
+
+  /**
+   * Returns the FEN string of the current position. Must be called on the executor of this
+   * session.
+   *
+   * @return the FEN string of the current position
+   */
+  String fen() {
+    return Fen.format(game().getBoard());
+  }
+
+  /**
+   * Drops the game on the executor of this session, keeping only the starting position and the
+   * moves made. Unlike other actions, this does not count as using the session.
+   *
+   * @param onEvicted called on the executor if the game was dropped, which it is not if it was
+   *     already evicted
+   * @throws RejectedExecutionException if the mailbox of this session is full
+   */
+  void evictLater(Runnable onEvicted) {
+    executor.execute(
+        () -> {
+          if (evict()) {
+            onEvicted.run();
+          }
+        });
+  }
+
+  private boolean evict() {
+    if (game == null) {
+      return false;
+    }
+    game = null;
+    notation = null;
+    resident = false;
+    moves = Arrays.copyOf(moves, Math.max(moveCount, 1));
+    return true;
+  }
+
+  /**
+   * Returns whether the game is held in memory and has not been used for at least the specified
+   * time.
+   *
+   * @param now the current value of {@link System#nanoTime()}
+   * @param idleNanos the idle time in nanoseconds
+   * @return true if the game can be evicted
+   */
+  boolean isIdle(long now, long idleNanos) {
+    return resident && now - lastUsed >= idleNanos;
+  }
+
+  long getId() {
+    return id;
+  }
+
+  LatencyStats getStats() {
+    return stats;
+  }
+
+  private Game game() {
+    if (game == null) {
+      restore();
+    }
+    return game;
+  }
+
+  private void restore() {
+    Board board = Fen.parse(startFen);
+    game = new Game(board, board.getSideToMove());
+    notation = new Notation(game);
+    for (int i = 0; i < moveCount; i++) {
+      game.move(moves[i]);
+    }
+    resident = true;
+  }
+}
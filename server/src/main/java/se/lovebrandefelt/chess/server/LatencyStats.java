@@ -0,0 +1,39 @@
+package se.lovebrandefelt.chess.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counts moves and their latency. Safe to update from several threads at once. */
+final class LatencyStats {
+  private final LongAdder count;
+  private final LongAdder totalNanos;
+  private final AtomicLong maxNanos;
+
+  LatencyStats() {
+    count = new LongAdder();
+    totalNanos = new LongAdder();
+    maxNanos = new AtomicLong();
+  }
+
+  /**
+   * Records a move that took the specified number of nanoseconds.
+   *
+   * @param nanos the latency of the move
+   */
+  void record(long nanos) {
+    count.increment();
+    totalNanos.add(nanos);
+    long max = maxNanos.get();
+    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+      max = maxNanos.get();
+    }
+  }
+
+  @Override
+  public String toString() {
+    long moves = count.sum();
+    double meanMicros = moves == 0 ? 0 : totalNanos.sum() / 1000.0 / moves;
+    return String.format(
+        "moves=%d mean_us=%.1f max_us=%.1f", moves, meanMicros, maxNanos.get() / 1000.0);
+  }
+}
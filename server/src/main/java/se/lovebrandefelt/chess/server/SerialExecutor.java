@@ -0,0 +1,68 @@
+package se.lovebrandefelt.chess.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks one at a time in the order they were submitted, on threads of a shared executor. At
+ * most a fixed number of tasks may wait, and further tasks are rejected, so a flood of requests
+ * for one game can not take up unbounded memory. After a batch of tasks the executor is handed
+ * back, so that a busy game can not hold a thread while other games wait.
+ */
+final class SerialExecutor implements Executor {
+  private static final int BATCH_SIZE = 64;
+
+  private final Executor executor;
+  private final int capacity;
+  private final Queue<Runnable> tasks;
+  private final AtomicInteger size;
+
+  /**
+   * Creates a new serial executor running its tasks on the specified executor.
+   *
+   * @param executor the executor to run tasks on
+   * @param capacity the maximum number of waiting tasks
+   */
+  SerialExecutor(Executor executor, int capacity) {
+    this.executor = executor;
+    this.capacity = capacity;
+    tasks = new ConcurrentLinkedQueue<>();
+    size = new AtomicInteger();
+  }
+
+  /**
+   * Submits the specified task.
+   *
+   * @param task the task to run
+   * @throws RejectedExecutionException if the maximum number of tasks are already waiting
+   */
+  @Override
+  public void execute(Runnable task) {
+    if (size.get() >= capacity) {
+      throw new RejectedExecutionException("Too many waiting tasks");
+    }
+    tasks.add(task);
+    if (size.getAndIncrement() == 0) {
+      executor.execute(this::drain);
+    }
+  }
+
+  // A task is always added before the size is incremented, so while the size is positive there is
+  // a task to poll
+  private void drain() {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      try {
+        tasks.poll().run();
+      } catch (RuntimeException ignored) {
+        // Tasks report their own failures, and one failure must not stop the tasks after it
+      }
+      if (size.decrementAndGet() == 0) {
+        return;
+      }
+    }
+    executor.execute(this::drain);
+  }
+}
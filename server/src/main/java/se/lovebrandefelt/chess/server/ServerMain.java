@@ -0,0 +1,16 @@
+package se.lovebrandefelt.chess.server;
+
+import java.io.IOException;
+
+public class ServerMain {
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+    int threads =
+        args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    long idleMillis = args.length > 2 ? Long.parseLong(args[2]) * 1000 : 300_000;
+    GameServer server = new GameServer(port, threads, 1024, idleMillis);
+    server.start();
+    System.out.println("Listening on port " + server.getPort());
+    Thread.currentThread().join();
+  }
+}
@@ -0,0 +1,85 @@
+package se.lovebrandefelt.chess.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import se.lovebrandefelt.chess.Fen;
+
+class GameSessionTest {
+  @Test
+  void actionsRunInTheOrderTheyWereSubmitted() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      GameSession session = new GameSession(1, Fen.STANDARD_SETUP, pool, 1024, new LatencyStats());
+      String[] moves = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O", "Be7"};
+      List<CompletableFuture<String>> results = new ArrayList<>();
+      for (String move : moves) {
+        results.add(session.submit(() -> session.move(move)));
+      }
+      for (int i = 0; i < moves.length; i++) {
+        assertEquals(moves[i] + " IN_PROGRESS", results.get(i).get());
+      }
+      assertEquals(
+          "r1bqk2r/1pppbppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQ1RK1 w kq - 4 6",
+          session.submit(session::fen).get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void fullMailboxRejectsActions() {
+    List<Runnable> waiting = new ArrayList<>();
+    SerialExecutor executor = new SerialExecutor(waiting::add, 2);
+    AtomicInteger ran = new AtomicInteger();
+    executor.execute(ran::incrementAndGet);
+    executor.execute(ran::incrementAndGet);
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(ran::incrementAndGet));
+    waiting.remove(0).run();
+    assertEquals(2, ran.get());
+    executor.execute(ran::incrementAndGet);
+    assertEquals(1, waiting.size());
+  }
+
+  @Test
+  void evictedGameIsReplayedWhenUsed() {
+    GameSession session =
+        new GameSession(1, Fen.STANDARD_SETUP, Runnable::run, 16, new LatencyStats());
+    session.move("d4");
+    session.move("Nf6");
+    String fen = session.fen();
+    assertTrue(session.isIdle(System.nanoTime(), 0));
+
+    AtomicInteger evicted = new AtomicInteger();
+    session.evictLater(evicted::incrementAndGet);
+    session.evictLater(evicted::incrementAndGet);
+    assertEquals(1, evicted.get());
+    assertFalse(session.isIdle(System.nanoTime(), 0));
+
+    assertEquals(fen, session.fen());
+    session.undo();
+    assertEquals("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1", session.fen());
+  }
+
+  @Test
+  void legalMovesFitOnLargeBoards() {
+    StringBuilder fen = new StringBuilder("k25");
+    for (int row = 1; row < 25; row++) {
+      fen.append(row == 12 ? "/QQQQQQQQ18" : "/26");
+    }
+    fen.append("/K25 w");
+    GameSession session =
+        new GameSession(1, fen.toString(), Runnable::run, 16, new LatencyStats());
+    assertTrue(session.legalMoves().split(" ").length > 256);
+  }
+}
@@ -1,20 +1,22 @@
 package se.lovebrandefelt.chess;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class Bishop extends Piece {
+  static final int[][] DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
   public Bishop(Color color) {
     super(color, 'B');
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    addMovesInDirection(new Pos(-1, -1), legalMoves);
-    addMovesInDirection(new Pos(-1, 1), legalMoves);
-    addMovesInDirection(new Pos(1, -1), legalMoves);
-    addMovesInDirection(new Pos(1, 1), legalMoves);
-    return legalMoves;
+  public Piece copy() {
+    return withMoveCount(new Bishop(getColor()));
+  }
+
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    for (int[] direction : DIRECTIONS) {
+      count = addMovesInDirection(direction, moves, count);
+    }
+    return count;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,303 @@
+package se.lovebrandefelt.chess;
+
+public class Bitboard {
+  /** The piece types that are tracked by a bitboard, in type index order. */
+  public static final String TYPE_IDS = "PNBRQK";
+
+  private static final int SQUARES = 64;
+  // The capture directions of pawns, indexed by the ordinal of their color
+  private static final int[][][] PAWN_DIRECTIONS = {{{1, -1}, {1, 1}}, {{-1, -1}, {-1, 1}}};
+  private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+  private static final long[] KING_ATTACKS = new long[SQUARES];
+  private static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+  private static final long[][] ROOK_RAYS = new long[Rook.DIRECTIONS.length][SQUARES];
+  private static final long[][] BISHOP_RAYS = new long[Bishop.DIRECTIONS.length][SQUARES];
+  private static final long[][] BETWEEN = new long[SQUARES][SQUARES];
+
+  static {
+    for (int square = 0; square < SQUARES; square++) {
+      KNIGHT_ATTACKS[square] = steps(square, Knight.DIRECTIONS, 1);
+      KING_ATTACKS[square] = steps(square, King.DIRECTIONS, 1);
+      for (Color color : Color.values()) {
+        PAWN_ATTACKS[color.ordinal()][square] =
+            steps(square, PAWN_DIRECTIONS[color.ordinal()], 1);
+      }
+      for (int i = 0; i < Rook.DIRECTIONS.length; i++) {
+        ROOK_RAYS[i][square] = steps(square, new int[][] {Rook.DIRECTIONS[i]}, 7);
+      }
+      for (int i = 0; i < Bishop.DIRECTIONS.length; i++) {
+        BISHOP_RAYS[i][square] = steps(square, new int[][] {Bishop.DIRECTIONS[i]}, 7);
+      }
+    }
+    for (int from = 0; from < SQUARES; from++) {
+      for (int to = 0; to < SQUARES; to++) {
+        long toBit = 1L << to;
+        if ((rookAttacks(from, toBit) & toBit) != 0) {
+          BETWEEN[from][to] = rookAttacks(from, toBit) & rookAttacks(to, 1L << from);
+        } else if ((bishopAttacks(from, toBit) & toBit) != 0) {
+          BETWEEN[from][to] = bishopAttacks(from, toBit) & bishopAttacks(to, 1L << from);
+        }
+      }
+    }
+  }
+
+  private final long[] pieces;
+  private final long[] colors;
+  private long occupied;
+
+  /** Creates a new empty bitboard. */
+  public Bitboard() {
+    pieces = new long[2 * TYPE_IDS.length()];
+    colors = new long[2];
+    occupied = 0;
+  }
+
+  /**
+   * Creates a new bitboard with the same occupied squares as the specified bitboard.
+   *
+   * @param other the bitboard to copy
+   */
+  public Bitboard(Bitboard other) {
+    pieces = other.pieces.clone();
+    colors = other.colors.clone();
+    occupied = other.occupied;
+  }
+
+  /**
+   * Returns the type index of the specified typeId, or -1 if the type is not tracked by
+   * bitboards.
+   *
+   * @param typeId the typeId
+   * @return the type index of the specified typeId
+   */
+  public static int typeIndex(char typeId) {
+    switch (typeId) {
+      case 'P':
+        return 0;
+      case 'N':
+        return 1;
+      case 'B':
+        return 2;
+      case 'R':
+        return 3;
+      case 'Q':
+        return 4;
+      case 'K':
+        return 5;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Marks the specified square as occupied by the specified piece.
+   *
+   * @param piece the piece to add
+   * @param square the square index to add the piece at
+   */
+  public void add(Piece piece, int square) {
+    long bit = 1L << square;
+    int typeIndex = typeIndex(piece.getTypeId());
+    if (typeIndex >= 0) {
+      pieces[piece.getColor().ordinal() * TYPE_IDS.length() + typeIndex] |= bit;
+    }
+    colors[piece.getColor().ordinal()] |= bit;
+    occupied |= bit;
+  }
+
+  /**
+   * Marks the specified square, previously occupied by the specified piece, as empty.
+   *
+   * @param piece the piece to remove
+   * @param square the square index to remove the piece from
+   */
+  public void remove(Piece piece, int square) {
+    long bit = ~(1L << square);
+    int typeIndex = typeIndex(piece.getTypeId());
+    if (typeIndex >= 0) {
+      pieces[piece.getColor().ordinal() * TYPE_IDS.length() + typeIndex] &= bit;
+    }
+    colors[piece.getColor().ordinal()] &= bit;
+    occupied &= bit;
+  }
+
+  /**
+   * Returns whether the specified square is empty.
+   *
+   * @param square the square index to check
+   * @return whether the specified square is empty
+   */
+  public boolean isEmpty(int square) {
+    return (occupied & (1L << square)) == 0;
+  }
+
+  /**
+   * Returns the squares occupied by pieces of the specified color and type.
+   *
+   * @param color the color of the pieces
+   * @param typeId the typeId of the pieces
+   * @return a bitboard of the occupied squares
+   */
+  public long pieces(Color color, char typeId) {
+    int typeIndex = typeIndex(typeId);
+    if (typeIndex < 0) {
+      return 0;
+    }
+    return pieces[color.ordinal() * TYPE_IDS.length() + typeIndex];
+  }
+
+  /**
+   * Returns the squares occupied by pieces of the specified color.
+   *
+   * @param color the color of the pieces
+   * @return a bitboard of the occupied squares
+   */
+  public long pieces(Color color) {
+    return colors[color.ordinal()];
+  }
+
+  /**
+   * Returns the squares occupied by pieces of the specified color whose types are not tracked by
+   * bitboards.
+   *
+   * @param color the color of the pieces
+   * @return a bitboard of the occupied squares
+   */
+  public long untracked(Color color) {
+    long tracked = 0;
+    for (int typeIndex = 0; typeIndex < TYPE_IDS.length(); typeIndex++) {
+      tracked |= pieces[color.ordinal() * TYPE_IDS.length() + typeIndex];
+    }
+    return colors[color.ordinal()] & ~tracked;
+  }
+
+  /**
+   * Returns the squares of the pieces of the specified color that attack the specified square.
+   * Pieces of types not tracked by bitboards are not included.
+   *
+   * @param square the square index to find the attackers of
+   * @param by the color of the attackers
+   * @return a bitboard of the attacking pieces
+   */
+  public long attackers(int square, Color by) {
+    long queens = pieces(by, 'Q');
+    return knightAttacks(square) & pieces(by, 'N')
+        | kingAttacks(square) & pieces(by, 'K')
+        | pawnAttacks(by.next(), square) & pieces(by, 'P')
+        | rookAttacks(square, occupied) & (pieces(by, 'R') | queens)
+        | bishopAttacks(square, occupied) & (pieces(by, 'B') | queens);
+  }
+
+  /**
+   * Returns the squares occupied by any piece.
+   *
+   * @return a bitboard of the occupied squares
+   */
+  public long occupied() {
+    return occupied;
+  }
+
+  /**
+   * Returns the squares a knight at the specified square attacks.
+   *
+   * @param square the square index of the knight
+   * @return a bitboard of the attacked squares
+   */
+  public static long knightAttacks(int square) {
+    return KNIGHT_ATTACKS[square];
+  }
+
+  /**
+   * Returns the squares a king at the specified square attacks.
+   *
+   * @param square the square index of the king
+   * @return a bitboard of the attacked squares
+   */
+  public static long kingAttacks(int square) {
+    return KING_ATTACKS[square];
+  }
+
+  /**
+   * Returns the squares a pawn of the specified color at the specified square attacks.
+   *
+   * @param color the color of the pawn
+   * @param square the square index of the pawn
+   * @return a bitboard of the attacked squares
+   */
+  public static long pawnAttacks(Color color, int square) {
+    return PAWN_ATTACKS[color.ordinal()][square];
+  }
+
+  /**
+   * Returns the squares a rook at the specified square attacks, given the specified occupied
+   * squares. Each ray includes the first occupied square it reaches.
+   *
+   * @param square the square index of the rook
+   * @param occupied a bitboard of the occupied squares
+   * @return a bitboard of the attacked squares
+   */
+  public static long rookAttacks(int square, long occupied) {
+    long attacks = 0;
+    for (int i = 0; i < Rook.DIRECTIONS.length; i++) {
+      attacks |= ray(ROOK_RAYS, Rook.DIRECTIONS[i], i, square, occupied);
+    }
+    return attacks;
+  }
+
+  /**
+   * Returns the squares a bishop at the specified square attacks, given the specified occupied
+   * squares. Each ray includes the first occupied square it reaches.
+   *
+   * @param square the square index of the bishop
+   * @param occupied a bitboard of the occupied squares
+   * @return a bitboard of the attacked squares
+   */
+  public static long bishopAttacks(int square, long occupied) {
+    long attacks = 0;
+    for (int i = 0; i < Bishop.DIRECTIONS.length; i++) {
+      attacks |= ray(BISHOP_RAYS, Bishop.DIRECTIONS[i], i, square, occupied);
+    }
+    return attacks;
+  }
+
+  /**
+   * Returns the squares strictly between the specified squares if they share a row, column or
+   * diagonal, and no squares otherwise.
+   *
+   * @param from the square index of one end
+   * @param to the square index of the other end
+   * @return a bitboard of the squares between
+   */
+  public static long between(int from, int to) {
+    return BETWEEN[from][to];
+  }
+
+  // Cuts the ray off behind its first blocker, which is the lowest set bit for rays towards
+  // higher square indices and the highest set bit for rays towards lower ones
+  private static long ray(long[][] rays, int[] direction, int i, int square, long occupied) {
+    long ray = rays[i][square];
+    long blockers = ray & occupied;
+    if (blockers != 0) {
+      int blocker =
+          direction[0] > 0 || (direction[0] == 0 && direction[1] > 0)
+              ? Long.numberOfTrailingZeros(blockers)
+              : 63 - Long.numberOfLeadingZeros(blockers);
+      ray &= ~rays[i][blocker];
+    }
+    return ray;
+  }
+
+  private static long steps(int square, int[][] directions, int maxSteps) {
+    long squares = 0;
+    for (int[] direction : directions) {
+      int row = square / 8 + direction[0];
+      int col = square % 8 + direction[1];
+      for (int step = 0;
+          step < maxSteps && row >= 0 && row < 8 && col >= 0 && col < 8;
+          step++, row += direction[0], col += direction[1]) {
+        squares |= 1L << (row * 8 + col);
+      }
+    }
+    return squares;
+  }
+}
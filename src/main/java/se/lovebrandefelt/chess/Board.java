@@ -4,6 +4,7 @@ import static se.lovebrandefelt.chess.Color.BLACK;
 import static se.lovebrandefelt.chess.Color.WHITE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,24 +12,101 @@ import java.util.Stack;
 
 public class Board {
   private Game game;
-  private Piece[][] squares;
+  private int rows;
+  private int cols;
+  private Piece[] squares;
+  private Pos[] positions;
+  private Bitboard bitboard;
   private Map<Color, List<Piece>> pieces;
-  private Stack<String> boardStates;
   private Stack<Move> history;
+  private Color sideToMove;
+  private long castlingRights;
+  private int enPassant;
+  private long key;
+  private long[] keyHistory;
+  private int[] enPassantHistory;
+  private long[] castlingHistory;
+  private int halfmoveClock;
+  private int[] halfmoveHistory;
+  private int irreversiblePly;
+  private int[] irreversibleHistory;
+  private int fullmoveNumber;
+  private long material;
+  private int[] lightSquareBishops;
 
   /**
    * Creates a new board with the specified number of rows and the specified number of columns.
    *
    * @param rows the number of columns
    * @param cols the number of rows
+   * @throws IllegalArgumentException if the board would have more than {@link
+   *     PackedMove#MAX_SQUARES} squares
    */
   public Board(int rows, int cols) {
-    squares = new Piece[rows][cols];
+    if ((long) rows * cols > PackedMove.MAX_SQUARES) {
+      throw new IllegalArgumentException(
+          "A board may have at most " + PackedMove.MAX_SQUARES + " squares");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    squares = new Piece[rows * cols];
+    positions = new Pos[rows * cols];
+    for (int square = 0; square < positions.length; square++) {
+      positions[square] = Pos.of(square / cols, square % cols);
+    }
+    if (rows == 8 && cols == 8) {
+      bitboard = new Bitboard();
+    }
     pieces = new HashMap<>();
     pieces.put(WHITE, new ArrayList<>());
     pieces.put(BLACK, new ArrayList<>());
-    boardStates = new Stack<>();
     history = new Stack<>();
+    sideToMove = WHITE;
+    castlingRights = 0;
+    enPassant = -1;
+    key = 0;
+    keyHistory = new long[16];
+    enPassantHistory = new int[16];
+    castlingHistory = new long[16];
+    halfmoveHistory = new int[16];
+    irreversibleHistory = new int[16];
+    fullmoveNumber = 1;
+    material = 0;
+    lightSquareBishops = new int[Color.values().length];
+  }
+
+  /**
+   * Returns an independent copy of this board with copies of its pieces and the same side to move,
+   * castling rights, en passant square and move counters. The copy has no history and belongs to
+   * no game. The bitboards, key and castling rights are copied as they are rather than rebuilt
+   * piece by piece, so copying takes a few microseconds.
+   *
+   * @return a copy of this board
+   */
+  public Board copy() {
+    Board copy = new Board(rows, cols);
+    for (int square = 0; square < squares.length; square++) {
+      Piece piece = squares[square];
+      if (piece != null) {
+        Piece pieceCopy = piece.copy();
+        pieceCopy.setBoard(copy);
+        pieceCopy.setPos(copy.positions[square]);
+        copy.squares[square] = pieceCopy;
+        copy.pieces.get(pieceCopy.getColor()).add(pieceCopy);
+      }
+    }
+    if (bitboard != null) {
+      copy.bitboard = new Bitboard(bitboard);
+    }
+    copy.sideToMove = sideToMove;
+    copy.castlingRights = castlingRights;
+    copy.enPassant = enPassant;
+    copy.key = key;
+    copy.halfmoveClock = halfmoveClock;
+    copy.fullmoveNumber = getFullmoveNumber();
+    copy.material = material;
+    copy.lightSquareBishops = lightSquareBishops.clone();
+    return copy;
   }
 
   /**
@@ -37,7 +115,7 @@ public class Board {
    * @return the number of rows
    */
   public int rows() {
-    return squares.length;
+    return rows;
   }
 
   /**
@@ -46,7 +124,39 @@ public class Board {
    * @return the number of columns
    */
   public int cols() {
-    return squares[0].length;
+    return cols;
+  }
+
+  /**
+   * Returns the square index of the specified position.
+   *
+   * @param pos the position
+   * @return the square index of the specified position
+   */
+  public int index(Pos pos) {
+    return pos.getRow() * cols + pos.getCol();
+  }
+
+  /**
+   * Returns the square index of the specified row and column.
+   *
+   * @param row the row
+   * @param col the column
+   * @return the square index of the specified row and column
+   */
+  public int index(int row, int col) {
+    return row * cols + col;
+  }
+
+  /**
+   * Returns the position of the specified square index. The same instance is returned for every
+   * call with the same index, so this does not allocate.
+   *
+   * @param index the square index
+   * @return the position of the specified square index
+   */
+  public Pos pos(int index) {
+    return positions[index];
   }
 
   /**
@@ -56,7 +166,18 @@ public class Board {
    * @return whether the specified position is inside the bounds
    */
   public boolean isInsideBounds(Pos pos) {
-    return pos.getRow() >= 0 && pos.getRow() < rows() && pos.getCol() >= 0 && pos.getCol() < cols();
+    return isInsideBounds(pos.getRow(), pos.getCol());
+  }
+
+  /**
+   * Returns whether the specified row and column are inside the bounds of this board.
+   *
+   * @param row the row to check
+   * @param col the column to check
+   * @return whether the specified row and column are inside the bounds
+   */
+  public boolean isInsideBounds(int row, int col) {
+    return row >= 0 && row < rows && col >= 0 && col < cols;
   }
 
   /**
@@ -66,7 +187,20 @@ public class Board {
    * @return whether the specified position is empty
    */
   public boolean isEmpty(Pos pos) {
-    return get(pos) == null;
+    return isEmpty(index(pos));
+  }
+
+  /**
+   * Returns whether the specified square is empty.
+   *
+   * @param index the square index to check
+   * @return whether the specified square is empty
+   */
+  public boolean isEmpty(int index) {
+    if (bitboard != null) {
+      return bitboard.isEmpty(index);
+    }
+    return squares[index] == null;
   }
 
   /**
@@ -76,7 +210,17 @@ public class Board {
    * @return the piece at the specified position
    */
   public Piece get(Pos pos) {
-    return squares[pos.getRow()][pos.getCol()];
+    return squares[index(pos)];
+  }
+
+  /**
+   * Returns the piece at the specified square.
+   *
+   * @param index the square index to get the piece at
+   * @return the piece at the specified square
+   */
+  public Piece get(int index) {
+    return squares[index];
   }
 
   /**
@@ -87,10 +231,77 @@ public class Board {
    * @return whether the specified position is threatened by the specified color
    */
   public boolean isThreatened(Pos pos, Color by) {
-    return pieces
-        .get(by)
-        .stream()
-        .anyMatch((piece -> piece.recursionSafeLegalMoves().containsKey(pos)));
+    return isThreatened(index(pos), by);
+  }
+
+  /**
+   * Returns whether the square at the specified index is threatened by the specified color. The
+   * attackers are found by looking outward from the square along knight, king, pawn and sliding
+   * piece lines, so no moves are generated except for pieces of types unknown to this board.
+   *
+   * @param square the square index to check
+   * @param by the color to check for
+   * @return whether the square is threatened by the specified color
+   */
+  public boolean isThreatened(int square, Color by) {
+    if (bitboard != null) {
+      if (bitboard.attackers(square, by) != 0) {
+        return true;
+      }
+    } else {
+      int row = square / cols;
+      int col = square % cols;
+      int pawnRow = by == WHITE ? row - 1 : row + 1;
+      if (isPieceAt(pawnRow, col - 1, by, "P") || isPieceAt(pawnRow, col + 1, by, "P")) {
+        return true;
+      }
+      for (int[] direction : Knight.DIRECTIONS) {
+        if (isPieceAt(row + direction[0], col + direction[1], by, "N")) {
+          return true;
+        }
+      }
+      for (int[] direction : King.DIRECTIONS) {
+        if (isPieceAt(row + direction[0], col + direction[1], by, "K")) {
+          return true;
+        }
+      }
+      for (int[] direction : Rook.DIRECTIONS) {
+        if (isSliderInDirection(row, col, direction, by, "RQ")) {
+          return true;
+        }
+      }
+      for (int[] direction : Bishop.DIRECTIONS) {
+        if (isSliderInDirection(row, col, direction, by, "BQ")) {
+          return true;
+        }
+      }
+    }
+    for (Piece piece : pieces.get(by)) {
+      if (Bitboard.typeIndex(piece.getTypeId()) < 0
+          && piece.recursionSafeLegalMoves().containsKey(pos(square))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isPieceAt(int row, int col, Color color, String typeIds) {
+    if (!isInsideBounds(row, col)) {
+      return false;
+    }
+    Piece piece = squares[index(row, col)];
+    return piece != null && piece.getColor() == color && typeIds.indexOf(piece.getTypeId()) >= 0;
+  }
+
+  private boolean isSliderInDirection(
+      int row, int col, int[] direction, Color color, String typeIds) {
+    row += direction[0];
+    col += direction[1];
+    while (isInsideBounds(row, col) && squares[index(row, col)] == null) {
+      row += direction[0];
+      col += direction[1];
+    }
+    return isPieceAt(row, col, color, typeIds);
   }
 
   /**
@@ -100,11 +311,20 @@ public class Board {
    * @return whether the king of the specified color is in check
    */
   public boolean kingInCheck(Color color) {
-    return pieces
-        .get(color)
-        .stream()
-        .anyMatch(
-            (piece) -> piece.getTypeId() == 'K' && isThreatened(piece.getPos(), color.next()));
+    if (bitboard != null) {
+      for (long kings = bitboard.pieces(color, 'K'); kings != 0; kings &= kings - 1) {
+        if (isThreatened(Long.numberOfTrailingZeros(kings), color.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (Piece piece : pieces.get(color)) {
+      if (piece.getTypeId() == 'K' && isThreatened(index(piece.getPos()), color.next())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -115,13 +335,35 @@ public class Board {
    * @return the added piece
    */
   public Piece add(Piece piece, Pos pos) {
+    put(piece, pos);
+    if (piece.getTypeId() == 'K' || piece.getTypeId() == 'R') {
+      updateCastlingRights();
+    }
+    return piece;
+  }
+
+  /**
+   * Adds the specified piece at the specified position without updating the castling rights.
+   * Moves use this, and {@link #move(Move)} updates the castling rights once the move is made.
+   *
+   * @param piece the piece to add
+   * @param pos the position to add the piece at
+   * @return the added piece
+   */
+  Piece put(Piece piece, Pos pos) {
     if (!isEmpty(pos)) {
-      pieces.get(get(pos).getColor()).remove(get(pos));
+      take(pos);
+    }
+    int index = index(pos);
+    squares[index] = piece;
+    if (bitboard != null) {
+      bitboard.add(piece, index);
     }
-    squares[pos.getRow()][pos.getCol()] = piece;
     piece.setBoard(this);
-    piece.setPos(pos);
+    piece.setPos(positions[index]);
     pieces.get(piece.getColor()).add(piece);
+    key ^= Zobrist.piece(piece.getColor(), piece.getTypeId(), index);
+    updateMaterial(piece, index, 1);
     return piece;
   }
 
@@ -133,7 +375,7 @@ public class Board {
    */
   public void addPawnRow(int row, Color color) {
     for (int i = 0; i < cols(); i++) {
-      add(new Pawn(color), new Pos(row, i));
+      add(new Pawn(color), pos(index(row, i)));
     }
   }
 
@@ -144,29 +386,398 @@ public class Board {
    * @return the removed piece
    */
   public Piece remove(Pos pos) {
+    Piece piece = take(pos);
+    if (piece != null && (piece.getTypeId() == 'K' || piece.getTypeId() == 'R')) {
+      updateCastlingRights();
+    }
+    return piece;
+  }
+
+  /**
+   * Removes the piece at the specified position without updating the castling rights.
+   *
+   * @param pos the position to remove the piece at
+   * @return the removed piece
+   */
+  Piece take(Pos pos) {
     Piece piece = get(pos);
     if (piece != null) {
       pieces.get(piece.getColor()).remove(piece);
+      if (bitboard != null) {
+        bitboard.remove(piece, index(pos));
+      }
+      squares[index(pos)] = null;
+      key ^= Zobrist.piece(piece.getColor(), piece.getTypeId(), index(pos));
+      updateMaterial(piece, index(pos), -1);
     }
-    squares[pos.getRow()][pos.getCol()] = null;
     return piece;
   }
 
+  private void updateMaterial(Piece piece, int index, int change) {
+    material += change * materialOf(piece.getColor(), piece.getTypeId());
+    if (piece.getTypeId() == 'B' && (index / cols + index % cols) % 2 == 1) {
+      lightSquareBishops[piece.getColor().ordinal()] += change;
+    }
+  }
+
+  /**
+   * Returns the material on this board as a 4 bit count for each color and piece type, with
+   * pieces of types other than the six standard ones counted together. The counts are kept up to
+   * date as pieces are added, captured and promoted, and a count is exact as long as it is at most
+   * 15, which always holds on boards with at most 15 pieces.
+   *
+   * @return the material on this board
+   */
+  public long getMaterial() {
+    return material;
+  }
+
+  /**
+   * Returns the amount the material of a board grows by when a piece of the specified color and
+   * type is added, so that the material of any set of pieces is the sum of their amounts.
+   *
+   * @param color the color of the piece
+   * @param typeId the type of the piece
+   * @return the material of the piece
+   */
+  public static long materialOf(Color color, char typeId) {
+    int typeIndex = Bitboard.typeIndex(typeId);
+    return 1L << 4 * (color.ordinal() * 7 + (typeIndex < 0 ? 6 : typeIndex));
+  }
+
+  /**
+   * Returns the number of bishops of the specified color on light squares, where the corner square
+   * of the first row and column is dark.
+   *
+   * @param color the color of the bishops
+   * @return the number of bishops on light squares
+   */
+  public int getLightSquareBishops(Color color) {
+    return lightSquareBishops[color.ordinal()];
+  }
+
+  /**
+   * Recomputes the castling rights, which mark the squares of every king and rook that has not
+   * moved and has a king or rook of the same color that has not moved on the same row. Kings that
+   * may never castle, such as Silverman kings, get no rights. Castling rights are only tracked on
+   * boards with at most 64 squares.
+   */
+  private void updateCastlingRights() {
+    long rights = 0;
+    if (rows * cols <= 64) {
+      rights |= castlingRights(pieces.get(WHITE));
+      rights |= castlingRights(pieces.get(BLACK));
+    }
+    setCastlingRights(rights);
+  }
+
+  private void setCastlingRights(long rights) {
+    for (long changed = rights ^ castlingRights; changed != 0; changed &= changed - 1) {
+      key ^= Zobrist.castling(Long.numberOfTrailingZeros(changed));
+    }
+    castlingRights = rights;
+  }
+
+  /**
+   * Returns the castling rights left after the specified squares lose theirs. A king keeps its
+   * right only while a rook of its color on its row does, and the other way around.
+   */
+  private long castlingRightsWithout(long lost) {
+    long rights = castlingRights & ~lost;
+    long kept = 0;
+    for (long kings = rights; kings != 0; kings &= kings - 1) {
+      int king = Long.numberOfTrailingZeros(kings);
+      Piece kingPiece = squares[king];
+      if (kingPiece == null || kingPiece.getTypeId() != 'K') {
+        continue;
+      }
+      for (long rooks = rights; rooks != 0; rooks &= rooks - 1) {
+        int rook = Long.numberOfTrailingZeros(rooks);
+        Piece rookPiece = squares[rook];
+        if (rookPiece != null
+            && rookPiece.getTypeId() == 'R'
+            && rookPiece.getColor() == kingPiece.getColor()
+            && rook / cols == king / cols) {
+          kept |= 1L << rook | 1L << king;
+        }
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Returns whether the king or rook at the specified square still has a castling right, that is
+   * whether neither it nor a partner for it on its row has moved. Boards with more than 64 squares
+   * do not track castling rights, and there the piece is asked whether it has moved instead.
+   *
+   * @param square the square index of the king or rook
+   * @return whether the piece at the square may castle
+   */
+  public boolean canCastleWith(int square) {
+    if (rows * cols <= 64) {
+      return (castlingRights >>> square & 1) != 0;
+    }
+    Piece piece = squares[square];
+    return piece != null && !piece.hasMoved();
+  }
+
+  private long castlingRights(List<Piece> pieces) {
+    long rights = 0;
+    for (int i = 0; i < pieces.size(); i++) {
+      Piece king = pieces.get(i);
+      if (king instanceof King && ((King) king).canCastle() && !king.hasMoved()) {
+        for (int j = 0; j < pieces.size(); j++) {
+          Piece rook = pieces.get(j);
+          if (rook.getTypeId() == 'R'
+              && !rook.hasMoved()
+              && rook.getPos().getRow() == king.getPos().getRow()) {
+            rights |= 1L << index(rook.getPos()) | 1L << index(king.getPos());
+          }
+        }
+      }
+    }
+    return rights;
+  }
+
   /**
    * Performs the specified move.
    *
    * @param move the move to perform
    */
   public void move(Move move) {
+    int ply = history.size();
+    if (ply == keyHistory.length) {
+      keyHistory = Arrays.copyOf(keyHistory, 2 * ply);
+      enPassantHistory = Arrays.copyOf(enPassantHistory, 2 * ply);
+      castlingHistory = Arrays.copyOf(castlingHistory, 2 * ply);
+      halfmoveHistory = Arrays.copyOf(halfmoveHistory, 2 * ply);
+      irreversibleHistory = Arrays.copyOf(irreversibleHistory, 2 * ply);
+    }
+    keyHistory[ply] = key;
+    enPassantHistory[ply] = enPassant;
+    castlingHistory[ply] = castlingRights;
+    halfmoveHistory[ply] = halfmoveClock;
+    irreversibleHistory[ply] = irreversiblePly;
     move.perform(this);
-    boardStates.push(toString());
+    if (move.getPiece().getTypeId() == 'P' || move.getCaptured() != null) {
+      halfmoveClock = 0;
+      irreversiblePly = ply + 1;
+    } else {
+      halfmoveClock++;
+      if (move instanceof CastlingMove) {
+        irreversiblePly = ply + 1;
+      }
+    }
+    if (castlingRights != 0) {
+      long lost = 1L << index(move.getFrom()) | 1L << index(move.getTo());
+      if ((castlingRights & lost) != 0) {
+        setCastlingRights(castlingRightsWithout(lost));
+      }
+    }
+    if (move.getPiece().getTypeId() == 'P'
+        && Math.abs(move.getTo().getRow() - move.getFrom().getRow()) == 2) {
+      int passed =
+          index((move.getFrom().getRow() + move.getTo().getRow()) / 2, move.getFrom().getCol());
+      setEnPassant(canCaptureEnPassant(passed, sideToMove.next()) ? passed : -1);
+    } else {
+      setEnPassant(-1);
+    }
+    setSideToMove(sideToMove.next());
     history.push(move);
   }
 
+  /**
+   * Returns a Move object for the specified packed move.
+   *
+   * @param move the packed move
+   * @return a Move object performing the packed move
+   * @throws IllegalArgumentException if the move is a castling move without a rook to castle with
+   */
+  public Move toMove(int move) {
+    Pos from = pos(PackedMove.from(move));
+    Pos to = pos(PackedMove.to(move));
+    if (PackedMove.is(move, PackedMove.CASTLING)) {
+      CastlingMove castlingMove = new CastlingMove(from, to);
+      castlingMove.setRook((Rook) get(castlingRook(move)));
+      return castlingMove;
+    }
+    if (PackedMove.is(move, PackedMove.EN_PASSANT)) {
+      return new EnPassantMove(from, to);
+    }
+    if (PackedMove.promotion(move) != 0) {
+      return new PromotionMove(from, to, PackedMove.promotion(move));
+    }
+    return new Move(from, to);
+  }
+
+  /**
+   * Returns the square of the rook the specified castling move castles with, which is the first
+   * piece on the row of the king on the side the king moves towards.
+   *
+   * @param move the packed castling move
+   * @return the square index of the rook
+   * @throws IllegalArgumentException if that piece is not a rook of the color of the king
+   */
+  int castlingRook(int move) {
+    int from = PackedMove.from(move);
+    Piece king = squares[from];
+    int step = PackedMove.to(move) % cols == 2 ? -1 : 1;
+    int rowStart = from - from % cols;
+    for (int square = from + step; square >= rowStart && square < rowStart + cols; square += step) {
+      Piece piece = squares[square];
+      if (piece != null) {
+        if (piece instanceof Rook && king != null && piece.getColor() == king.getColor()) {
+          return square;
+        }
+        break;
+      }
+    }
+    throw new IllegalArgumentException("No rook to castle with from " + pos(from));
+  }
+
   /** Undoes the last move. */
   public void undoMove() {
-    boardStates.pop();
     history.pop().undo(this);
+    int ply = history.size();
+    setCastlingRights(castlingHistory[ply]);
+    setEnPassant(enPassantHistory[ply]);
+    halfmoveClock = halfmoveHistory[ply];
+    irreversiblePly = irreversibleHistory[ply];
+    setSideToMove(sideToMove.next());
+  }
+
+  /**
+   * Returns the Zobrist key of the current position, covering the piece placement, the side to
+   * move, the castling rights and the en passant column.
+   *
+   * @return the key of the current position
+   */
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the Zobrist key of the position after the specified number of moves of the history.
+   *
+   * @param ply the number of moves
+   * @return the key of the position after the specified number of moves
+   */
+  public long getKey(int ply) {
+    if (ply == history.size()) {
+      return key;
+    }
+    return keyHistory[ply];
+  }
+
+  /**
+   * Returns the number of moves since the last capture or pawn move, as counted by the fifty move
+   * rule.
+   *
+   * @return the halfmove clock
+   */
+  public int getHalfmoveClock() {
+    return halfmoveClock;
+  }
+
+  /**
+   * Sets the halfmove clock of the current position.
+   *
+   * @param halfmoveClock the number of moves since the last capture or pawn move
+   */
+  void setHalfmoveClock(int halfmoveClock) {
+    this.halfmoveClock = halfmoveClock;
+  }
+
+  /**
+   * Returns the number of moves of the history up to and including the last capture, pawn move or
+   * castling. None of these can be undone, so no position before this ply can occur again, and a
+   * repetition only needs to be looked for from here on.
+   *
+   * @return the ply after the last irreversible move, or 0 if there is none
+   */
+  public int getIrreversiblePly() {
+    return irreversiblePly;
+  }
+
+  /**
+   * Returns the number of the current full move, which starts at 1 and goes up after each move of
+   * black.
+   *
+   * @return the fullmove number
+   */
+  public int getFullmoveNumber() {
+    int plies = history.size();
+    boolean blackStarted = (sideToMove == BLACK) != (plies % 2 == 1);
+    return fullmoveNumber + (plies + (blackStarted ? 1 : 0)) / 2;
+  }
+
+  /**
+   * Sets the fullmove number of the position before the first move of the history.
+   *
+   * @param fullmoveNumber the fullmove number
+   */
+  void setFullmoveNumber(int fullmoveNumber) {
+    this.fullmoveNumber = fullmoveNumber;
+  }
+
+  public Color getSideToMove() {
+    return sideToMove;
+  }
+
+  /**
+   * Sets the side to move.
+   *
+   * @param sideToMove the side to move
+   */
+  public void setSideToMove(Color sideToMove) {
+    if (sideToMove != this.sideToMove) {
+      key ^= Zobrist.BLACK_TO_MOVE;
+    }
+    this.sideToMove = sideToMove;
+  }
+
+  public long getCastlingRights() {
+    return castlingRights;
+  }
+
+  /**
+   * Returns the square a pawn passed over in a double step last move, or -1 if the last move was
+   * not a double step or no pawn can capture en passant. Leaving out squares no pawn can capture on
+   * keeps the key of a position the same however it was reached, so repetitions are found.
+   *
+   * @return the square index of the en passant target
+   */
+  public int getEnPassant() {
+    return enPassant;
+  }
+
+  /**
+   * Returns whether a pawn of the specified color stands next to the pawn that passed over the
+   * specified en passant square, so that it could capture it en passant.
+   *
+   * @param enPassant the square index of the en passant target
+   * @param by the color of the capturing pawn
+   * @return whether a pawn could capture en passant
+   */
+  boolean canCaptureEnPassant(int enPassant, Color by) {
+    int row = enPassant / cols + (by == WHITE ? -1 : 1);
+    int col = enPassant % cols;
+    return isPieceAt(row, col - 1, by, "P") || isPieceAt(row, col + 1, by, "P");
+  }
+
+  /**
+   * Sets the en passant square, or clears it if the specified square is -1.
+   *
+   * @param enPassant the square index of the en passant target
+   */
+  void setEnPassant(int enPassant) {
+    if (this.enPassant >= 0) {
+      key ^= Zobrist.enPassant(this.enPassant % cols);
+    }
+    if (enPassant >= 0) {
+      key ^= Zobrist.enPassant(enPassant % cols);
+    }
+    this.enPassant = enPassant;
   }
 
   public Game getGame() {
@@ -177,12 +788,17 @@ public class Board {
     this.game = game;
   }
 
-  public Map<Color, List<Piece>> getPieces() {
-    return pieces;
+  /**
+   * Returns the bitboard of this board, or null if this board is not an 8x8 board.
+   *
+   * @return the bitboard of this board
+   */
+  public Bitboard getBitboard() {
+    return bitboard;
   }
 
-  public List<String> getBoardStates() {
-    return boardStates;
+  public Map<Color, List<Piece>> getPieces() {
+    return pieces;
   }
 
   public Stack<Move> getHistory() {
@@ -194,7 +810,7 @@ public class Board {
     StringBuilder boardStringBuilder = new StringBuilder();
     for (int row = 0; row < rows(); row++) {
       for (int col = 0; col < cols(); col++) {
-        Piece piece = get(new Pos(row, col));
+        Piece piece = get(index(row, col));
         if (piece == null) {
           boardStringBuilder.append("  ");
         } else {
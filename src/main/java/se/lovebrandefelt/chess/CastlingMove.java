@@ -13,23 +13,24 @@ public class CastlingMove extends Move {
   protected void perform(Board board) {
     setPiece(board.get(getFrom()));
     rookFrom = rook.getPos();
-    if (rookFrom.getCol() < getFrom().getCol()) {
-      rookTo = getTo().offset(new Pos(0, 1));
-    } else {
-      rookTo = getTo().offset(new Pos(0, -1));
-    }
-    board.remove(getFrom());
-    board.remove(rookFrom);
-    board.add(getPiece(), getTo());
-    board.add(rook, rookTo);
+    int to = board.index(getTo());
+    rookTo = board.pos(rookFrom.getCol() < getFrom().getCol() ? to + 1 : to - 1);
+    board.take(getFrom());
+    board.take(rookFrom);
+    getPiece().setMoveCount(getPiece().getMoveCount() + 1);
+    rook.setMoveCount(rook.getMoveCount() + 1);
+    board.put(getPiece(), getTo());
+    board.put(rook, rookTo);
   }
 
   @Override
   protected void undo(Board board) {
-    board.remove(getTo());
-    board.remove(rookTo);
-    board.add(getPiece(), getFrom());
-    board.add(rook, rookFrom);
+    board.take(getTo());
+    board.take(rookTo);
+    getPiece().setMoveCount(getPiece().getMoveCount() - 1);
+    rook.setMoveCount(rook.getMoveCount() - 1);
+    board.put(getPiece(), getFrom());
+    board.put(rook, rookFrom);
   }
 
   Rook getRook() {
@@ -9,17 +9,18 @@ public class EnPassantMove extends Move {
 
   @Override
   protected void perform(Board board) {
-    Pawn piece = (Pawn) board.get(getFrom());
-    capturedPos = getTo().offset(new Pos(-piece.moveDirection(), 0));
-    setCaptured(board.remove(capturedPos));
-    setPiece(board.add(piece, getTo()));
-    board.remove(getFrom());
+    Pawn piece = (Pawn) board.take(getFrom());
+    capturedPos = board.pos(board.index(getTo()) - piece.moveDirection() * board.cols());
+    setCaptured(board.take(capturedPos));
+    piece.setMoveCount(piece.getMoveCount() + 1);
+    setPiece(board.put(piece, getTo()));
   }
 
   @Override
   protected void undo(Board board) {
-    board.add(getPiece(), getFrom());
-    board.remove(getTo());
-    board.add(getCaptured(), capturedPos);
+    board.take(getTo());
+    getPiece().setMoveCount(getPiece().getMoveCount() - 1);
+    board.put(getPiece(), getFrom());
+    board.put(getCaptured(), capturedPos);
   }
 }
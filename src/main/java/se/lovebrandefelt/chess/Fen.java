@@ -0,0 +1,355 @@
+package se.lovebrandefelt.chess;
+
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Pos.colToString;
+import static se.lovebrandefelt.chess.Pos.rowToString;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Castling rights may be given as KQkq, as
+ * the files of the rooks (Shredder-FEN) or as a mix of both (X-FEN), so Chess960 positions can be
+ * read as well. Boards with at most 26 columns and at most {@link PackedMove#MAX_SQUARES} squares
+ * are supported.
+ *
+ * <p>Like {@link Position}, FEN does not record how many times each piece has moved. When a FEN
+ * string is read, kings and rooks have moved unless they hold a castling right, and pawns have
+ * moved unless they stand on the second row from their own side.
+ *
+ * <p>FEN cannot tell a {@link SilvermanKing} from a king. Silverman kings are written as kings
+ * without castling rights, and are read back as kings, so use {@link Position} to store boards
+ * with Silverman kings.
+ */
+public final class Fen {
+  /** The FEN string of the standard setup. */
+  public static final String STANDARD_SETUP =
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+  private Fen() {}
+
+  /**
+   * Returns a new board in the position of the specified FEN string. The castling, en passant,
+   * halfmove clock and fullmove number fields may be left out, in which case the counters start at
+   * 0 and 1. An en passant square no pawn can capture on is ignored, as it is after a move.
+   *
+   * @param fen the FEN string
+   * @return a new board in the position of the FEN string, with the side to move set
+   * @throws IllegalArgumentException if the string is not a valid FEN string
+   */
+  public static Board parse(String fen) {
+    int length = fen.length();
+    int end = fieldEnd(fen, 0);
+    int rows = 1;
+    int cols = 0;
+    for (int i = 0; i < end && fen.charAt(i) != '/'; i++) {
+      char c = fen.charAt(i);
+      if (isDigit(c)) {
+        int count = c - '0';
+        while (i + 1 < end && isDigit(fen.charAt(i + 1))) {
+          count = count * 10 + fen.charAt(++i) - '0';
+        }
+        cols += count;
+      } else {
+        cols++;
+      }
+    }
+    for (int i = 0; i < end; i++) {
+      if (fen.charAt(i) == '/') {
+        rows++;
+      }
+    }
+    if (cols == 0 || cols > 26 || rows * cols > PackedMove.MAX_SQUARES) {
+      throw invalid(fen, "placement");
+    }
+
+    Piece[] squares = new Piece[rows * cols];
+    int row = rows - 1;
+    int col = 0;
+    for (int i = 0; i < end; i++) {
+      char c = fen.charAt(i);
+      if (c == '/') {
+        if (col != cols) {
+          throw invalid(fen, "placement");
+        }
+        row--;
+        col = 0;
+      } else if (isDigit(c)) {
+        int count = c - '0';
+        while (i + 1 < end && isDigit(fen.charAt(i + 1))) {
+          count = count * 10 + fen.charAt(++i) - '0';
+        }
+        col += count;
+      } else {
+        Piece piece = piece(c);
+        if (piece == null || col >= cols) {
+          throw invalid(fen, "placement");
+        }
+        if (piece.getTypeId() == 'K' || piece.getTypeId() == 'R') {
+          piece.setMoveCount(1);
+        } else if (piece.getTypeId() == 'P'
+            && row != (piece.getColor() == WHITE ? 1 : rows - 2)) {
+          piece.setMoveCount(1);
+        }
+        squares[row * cols + col++] = piece;
+      }
+    }
+    if (col != cols) {
+      throw invalid(fen, "placement");
+    }
+
+    int start = end + 1;
+    end = fieldEnd(fen, start);
+    Color sideToMove;
+    if (end - start == 1 && fen.charAt(start) == 'w') {
+      sideToMove = WHITE;
+    } else if (end - start == 1 && fen.charAt(start) == 'b') {
+      sideToMove = BLACK;
+    } else {
+      throw invalid(fen, "side to move");
+    }
+
+    start = end + 1;
+    if (start < length) {
+      end = fieldEnd(fen, start);
+      if (end - start != 1 || fen.charAt(start) != '-') {
+        for (int i = start; i < end; i++) {
+          if (!grantCastlingRight(squares, rows, cols, fen.charAt(i))) {
+            throw invalid(fen, "castling rights");
+          }
+        }
+      }
+    }
+
+    int enPassant = -1;
+    start = end + 1;
+    if (start < length) {
+      end = fieldEnd(fen, start);
+      if (end - start != 1 || fen.charAt(start) != '-') {
+        enPassant = square(fen, start, end, rows, cols);
+      }
+    }
+
+    int[] counters = {0, 1};
+    for (int field = 0; field < 2; field++) {
+      start = end + 1;
+      if (start < length) {
+        end = fieldEnd(fen, start);
+        if (end - start > 9) {
+          throw invalid(fen, "move number");
+        }
+        int counter = 0;
+        for (int i = start; i < end; i++) {
+          if (!isDigit(fen.charAt(i))) {
+            throw invalid(fen, "move number");
+          }
+          counter = counter * 10 + fen.charAt(i) - '0';
+        }
+        counters[field] = counter;
+      }
+    }
+    if (end < length) {
+      throw invalid(fen, "trailing fields");
+    }
+
+    Board board = new Board(rows, cols);
+    for (int square = 0; square < squares.length; square++) {
+      if (squares[square] != null) {
+        board.add(squares[square], board.pos(square));
+      }
+    }
+    board.setSideToMove(sideToMove);
+    if (enPassant >= 0 && board.canCaptureEnPassant(enPassant, sideToMove)) {
+      board.setEnPassant(enPassant);
+    }
+    board.setHalfmoveClock(counters[0]);
+    board.setFullmoveNumber(Math.max(counters[1], 1));
+    return board;
+  }
+
+  /**
+   * Returns the FEN string of the specified board. Castling rights are written as KQkq unless a
+   * right belongs to a rook that is not the outermost rook on its side of the king, in which case
+   * the file of the rook is written, as in X-FEN.
+   *
+   * @param board the board
+   * @return the FEN string of the board
+   */
+  public static String format(Board board) {
+    StringBuilder fen = new StringBuilder(90);
+    for (int row = board.rows() - 1; row >= 0; row--) {
+      int empty = 0;
+      for (int col = 0; col < board.cols(); col++) {
+        Piece piece = board.get(board.index(row, col));
+        if (piece == null) {
+          empty++;
+          continue;
+        }
+        if (empty > 0) {
+          fen.append(empty);
+          empty = 0;
+        }
+        char typeId = piece.getTypeId();
+        fen.append(piece.getColor() == WHITE ? typeId : Character.toLowerCase(typeId));
+      }
+      if (empty > 0) {
+        fen.append(empty);
+      }
+      if (row > 0) {
+        fen.append('/');
+      }
+    }
+
+    fen.append(board.getSideToMove() == WHITE ? " w " : " b ");
+    int castlingStart = fen.length();
+    appendCastlingRights(fen, board, WHITE);
+    appendCastlingRights(fen, board, BLACK);
+    if (fen.length() == castlingStart) {
+      fen.append('-');
+    }
+
+    fen.append(' ');
+    int enPassant = board.getEnPassant();
+    if (enPassant >= 0) {
+      fen.append(colToString(enPassant % board.cols()));
+      fen.append(rowToString(enPassant / board.cols()));
+    } else {
+      fen.append('-');
+    }
+
+    fen.append(' ').append(board.getHalfmoveClock());
+    fen.append(' ').append(board.getFullmoveNumber());
+    return fen.toString();
+  }
+
+  private static void appendCastlingRights(StringBuilder fen, Board board, Color color) {
+    long rights = board.getCastlingRights();
+    for (long kings = rights; kings != 0; kings &= kings - 1) {
+      int king = Long.numberOfTrailingZeros(kings);
+      if (!isPiece(board.get(king), color, 'K')) {
+        continue;
+      }
+      int row = king / board.cols();
+      int rowStart = row * board.cols();
+      int rowEnd = rowStart + board.cols();
+      for (int rook = rowEnd - 1; rook > king; rook--) {
+        if ((rights >>> rook & 1) != 0 && isPiece(board.get(rook), color, 'R')) {
+          boolean outermost = true;
+          for (int square = rook + 1; square < rowEnd; square++) {
+            outermost &= !isPiece(board.get(square), color, 'R');
+          }
+          fen.append(castlingRight(color, outermost ? 'K' : fileLetter(rook - rowStart)));
+        }
+      }
+      for (int rook = rowStart; rook < king; rook++) {
+        if ((rights >>> rook & 1) != 0 && isPiece(board.get(rook), color, 'R')) {
+          boolean outermost = true;
+          for (int square = rowStart; square < rook; square++) {
+            outermost &= !isPiece(board.get(square), color, 'R');
+          }
+          fen.append(castlingRight(color, outermost ? 'Q' : fileLetter(rook - rowStart)));
+        }
+      }
+    }
+  }
+
+  // Marks the king and the rook of the specified castling right as not having moved
+  private static boolean grantCastlingRight(Piece[] squares, int rows, int cols, char right) {
+    Color color = Character.isUpperCase(right) ? WHITE : BLACK;
+    int rowStart = color == WHITE ? 0 : (rows - 1) * cols;
+    int king = -1;
+    for (int square = rowStart; square < rowStart + cols; square++) {
+      if (isPiece(squares[square], color, 'K')) {
+        king = square;
+      }
+    }
+    if (king < 0) {
+      return false;
+    }
+    char upper = Character.toUpperCase(right);
+    int rook = -1;
+    if (upper == 'K') {
+      for (int square = rowStart + cols - 1; square > king && rook < 0; square--) {
+        rook = isPiece(squares[square], color, 'R') ? square : -1;
+      }
+    } else if (upper == 'Q') {
+      for (int square = rowStart; square < king && rook < 0; square++) {
+        rook = isPiece(squares[square], color, 'R') ? square : -1;
+      }
+    } else if (upper >= 'A' && upper < 'A' + cols) {
+      int square = rowStart + upper - 'A';
+      rook = isPiece(squares[square], color, 'R') ? square : -1;
+    }
+    if (rook < 0) {
+      return false;
+    }
+    squares[king].setMoveCount(0);
+    squares[rook].setMoveCount(0);
+    return true;
+  }
+
+  private static int square(String fen, int start, int end, int rows, int cols) {
+    if (end - start < 2) {
+      throw invalid(fen, "en passant square");
+    }
+    int col = Character.toLowerCase(fen.charAt(start)) - 'a';
+    int row = 0;
+    for (int i = start + 1; i < end; i++) {
+      if (!isDigit(fen.charAt(i))) {
+        throw invalid(fen, "en passant square");
+      }
+      row = row * 10 + fen.charAt(i) - '0';
+    }
+    row--;
+    if (col < 0 || col >= cols || row < 0 || row >= rows) {
+      throw invalid(fen, "en passant square");
+    }
+    return row * cols + col;
+  }
+
+  private static int fieldEnd(String fen, int start) {
+    if (start >= fen.length() || fen.charAt(start) == ' ') {
+      throw invalid(fen, "missing field");
+    }
+    int end = fen.indexOf(' ', start);
+    return end < 0 ? fen.length() : end;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isPiece(Piece piece, Color color, char typeId) {
+    return piece != null && piece.getColor() == color && piece.getTypeId() == typeId;
+  }
+
+  private static char fileLetter(int col) {
+    return (char) ('A' + col);
+  }
+
+  private static char castlingRight(Color color, char right) {
+    return color == WHITE ? right : Character.toLowerCase(right);
+  }
+
+  private static Piece piece(char c) {
+    Color color = Character.isUpperCase(c) ? WHITE : BLACK;
+    switch (Character.toUpperCase(c)) {
+      case 'P':
+        return new Pawn(color);
+      case 'N':
+        return new Knight(color);
+      case 'B':
+        return new Bishop(color);
+      case 'R':
+        return new Rook(color);
+      case 'Q':
+        return new Queen(color);
+      case 'K':
+        return new King(color);
+      default:
+        return null;
+    }
+  }
+
+  private static IllegalArgumentException invalid(String fen, String field) {
+    return new IllegalArgumentException("Invalid FEN (" + field + "): " + fen);
+  }
+}
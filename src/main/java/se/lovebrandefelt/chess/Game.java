@@ -6,23 +6,37 @@ import static se.lovebrandefelt.chess.Game.State.BLACK_WON;
 import static se.lovebrandefelt.chess.Game.State.DRAW;
 import static se.lovebrandefelt.chess.Game.State.IN_PROGRESS;
 import static se.lovebrandefelt.chess.Game.State.WHITE_WON;
-import static se.lovebrandefelt.chess.Pos.colToString;
-import static se.lovebrandefelt.chess.Pos.rowToString;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class Game {
+  // The material of positions where neither side can checkmate however they play, apart from a
+  // bishop each, which is only a draw when the bishops are on squares of the same color
+  private static final long[] DEAD_DRAWS = {
+    material("K", "K"), material("KB", "K"), material("K", "KB"), material("KN", "K"),
+    material("K", "KN")
+  };
+  private static final long BISHOP_EACH = material("KB", "KB");
+
   private Board board;
-  private Color currentPlayer;
   private Map<Pos, Map<Pos, Move>> legalMoves;
+  private Notation notation;
+  private int[] cachedMoves;
+  private int[] cachedMoveCounts;
+  private long cacheKey;
+  private long whiteBeforeChange;
+  private long blackBeforeChange;
+  private State state;
+  private Boolean inCheck;
+  private int legalMoveCount;
+  private long memoKey;
+  private int memoPly;
+  private int[] moveBuffer;
 
   /**
    * Creates a new game using the specified setup with the specified starting player.
@@ -33,8 +47,15 @@ public class Game {
   public Game(Board setup, Color startingPlayer) {
     board = setup;
     board.setGame(this);
-    currentPlayer = startingPlayer;
-    legalMoves = new HashMap<>();
+    board.setSideToMove(startingPlayer);
+    legalMoves = null;
+    memoPly = -1;
+    if (board.getBitboard() != null) {
+      cachedMoves = new int[board.rows() * board.cols() * PackedMove.maxPieceMoves(board)];
+      cachedMoveCounts = new int[board.rows() * board.cols()];
+      Arrays.fill(cachedMoveCounts, -1);
+      cacheKey = board.getKey();
+    }
   }
 
   /**
@@ -44,23 +65,23 @@ public class Game {
    */
   public static Board standardSetup() {
     Board board = new Board(8, 8);
-    board.add(new Rook(WHITE), new Pos(0, 0));
-    board.add(new Knight(WHITE), new Pos(0, 1));
-    board.add(new Bishop(WHITE), new Pos(0, 2));
-    board.add(new Queen(WHITE), new Pos(0, 3));
-    board.add(new King(WHITE), new Pos(0, 4));
-    board.add(new Bishop(WHITE), new Pos(0, 5));
-    board.add(new Knight(WHITE), new Pos(0, 6));
-    board.add(new Rook(WHITE), new Pos(0, 7));
+    board.add(new Rook(WHITE), Pos.of(0, 0));
+    board.add(new Knight(WHITE), Pos.of(0, 1));
+    board.add(new Bishop(WHITE), Pos.of(0, 2));
+    board.add(new Queen(WHITE), Pos.of(0, 3));
+    board.add(new King(WHITE), Pos.of(0, 4));
+    board.add(new Bishop(WHITE), Pos.of(0, 5));
+    board.add(new Knight(WHITE), Pos.of(0, 6));
+    board.add(new Rook(WHITE), Pos.of(0, 7));
     board.addPawnRow(1, WHITE);
-    board.add(new Rook(BLACK), new Pos(7, 0));
-    board.add(new Knight(BLACK), new Pos(7, 1));
-    board.add(new Bishop(BLACK), new Pos(7, 2));
-    board.add(new Queen(BLACK), new Pos(7, 3));
-    board.add(new King(BLACK), new Pos(7, 4));
-    board.add(new Bishop(BLACK), new Pos(7, 5));
-    board.add(new Knight(BLACK), new Pos(7, 6));
-    board.add(new Rook(BLACK), new Pos(7, 7));
+    board.add(new Rook(BLACK), Pos.of(7, 0));
+    board.add(new Knight(BLACK), Pos.of(7, 1));
+    board.add(new Bishop(BLACK), Pos.of(7, 2));
+    board.add(new Queen(BLACK), Pos.of(7, 3));
+    board.add(new King(BLACK), Pos.of(7, 4));
+    board.add(new Bishop(BLACK), Pos.of(7, 5));
+    board.add(new Knight(BLACK), Pos.of(7, 6));
+    board.add(new Rook(BLACK), Pos.of(7, 7));
     board.addPawnRow(6, BLACK);
     return board;
   }
@@ -84,24 +105,24 @@ public class Game {
     for (int i = 0; i < 8; i++) {
       switch (pieces.get(i)) {
         case 'B':
-          board.add(new Bishop(WHITE), new Pos(0, i));
-          board.add(new Bishop(BLACK), new Pos(7, i));
+          board.add(new Bishop(WHITE), Pos.of(0, i));
+          board.add(new Bishop(BLACK), Pos.of(7, i));
           break;
         case 'K':
-          board.add(new King(WHITE), new Pos(0, i));
-          board.add(new King(BLACK), new Pos(7, i));
+          board.add(new King(WHITE), Pos.of(0, i));
+          board.add(new King(BLACK), Pos.of(7, i));
           break;
         case 'N':
-          board.add(new Knight(WHITE), new Pos(0, i));
-          board.add(new Knight(BLACK), new Pos(7, i));
+          board.add(new Knight(WHITE), Pos.of(0, i));
+          board.add(new Knight(BLACK), Pos.of(7, i));
           break;
         case 'R':
-          board.add(new Rook(WHITE), new Pos(0, i));
-          board.add(new Rook(BLACK), new Pos(7, i));
+          board.add(new Rook(WHITE), Pos.of(0, i));
+          board.add(new Rook(BLACK), Pos.of(7, i));
           break;
         case 'Q':
-          board.add(new Queen(WHITE), new Pos(0, i));
-          board.add(new Queen(BLACK), new Pos(7, i));
+          board.add(new Queen(WHITE), Pos.of(0, i));
+          board.add(new Queen(BLACK), Pos.of(7, i));
           break;
         default:
       }
@@ -118,16 +139,16 @@ public class Game {
    */
   public static Board silvermanChessSetup() {
     Board board = new Board(5,4);
-    board.add(new Rook(WHITE), new Pos(0, 0));
-    board.add(new Queen(WHITE), new Pos(0, 1));
-    board.add(new SilvermanKing(WHITE), new Pos(0, 2));
-    board.add(new Rook(WHITE), new Pos(0, 3));
+    board.add(new Rook(WHITE), Pos.of(0, 0));
+    board.add(new Queen(WHITE), Pos.of(0, 1));
+    board.add(new SilvermanKing(WHITE), Pos.of(0, 2));
+    board.add(new Rook(WHITE), Pos.of(0, 3));
     board.addPawnRow(1, WHITE);
 
-    board.add(new Rook(BLACK), new Pos(4, 0));
-    board.add(new Queen(BLACK), new Pos(4, 1));
-    board.add(new SilvermanKing(BLACK), new Pos(4, 2));
-    board.add(new Rook(BLACK), new Pos(4, 3));
+    board.add(new Rook(BLACK), Pos.of(4, 0));
+    board.add(new Queen(BLACK), Pos.of(4, 1));
+    board.add(new SilvermanKing(BLACK), Pos.of(4, 2));
+    board.add(new Rook(BLACK), Pos.of(4, 3));
     board.addPawnRow(3, BLACK);
     return board;
   }
@@ -135,29 +156,205 @@ public class Game {
   /**
    * Returns a map where each key is a position the current player can move from and each value a
    * map where each key is a position that piece can move to and each value is a corresponding Move
-   * object.
+   * object. The map is computed once per position and kept until the position changes.
    *
    * @return a map of legal moves
    */
   public Map<Pos, Map<Pos, Move>> legalMoves() {
-    if (legalMoves.isEmpty()) {
-      new ArrayList<>(getBoard().getPieces().get(currentPlayer))
-          .forEach((piece) -> legalMoves.put(piece.getPos(), legalMovesWithCheck(piece.getPos())));
+    refreshMemo();
+    if (legalMoves == null) {
+      legalMoves = new HashMap<>();
+      List<Piece> pieces = board.getPieces().get(getCurrentPlayer());
+      pieces.forEach((piece) -> legalMoves.put(piece.getPos(), new HashMap<>()));
+      int[] moves = new int[pieces.size() * PackedMove.maxPieceMoves(board)];
+      int count = legalMoves(moves);
+      for (int i = 0; i < count; i++) {
+        legalMoves
+            .get(board.pos(PackedMove.from(moves[i])))
+            .put(
+                board.pos(PackedMove.to(moves[i])),
+                board.toMove(PackedMove.withoutPromotion(moves[i])));
+      }
     }
     return legalMoves;
   }
 
-  private Map<Pos, Move> legalMovesWithCheck(Pos from) {
-    return board
-        .get(from)
-        .legalMoves()
-        .entrySet()
-        .stream()
-        .filter((entry) -> !movePutsCurrentPlayerInCheck(entry.getValue()))
-        .collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+  /**
+   * Writes the legal moves of the current player as packed moves into the specified array. The
+   * array must have room for {@link PackedMove#maxPieceMoves(Board)} moves per piece of the
+   * current player, which {@link PackedMove#MAX_MOVES} is on an 8x8 board.
+   *
+   * <p>On 8x8 boards where the current player has a single king, legality is decided up front from
+   * the checks and pins against that king, and only king moves and en passant captures are tried
+   * on the board. Otherwise every move is made and undone to see whether it leaves a king in check.
+   *
+   * @param moves the array of packed moves
+   * @return the number of legal moves
+   */
+  public int legalMoves(int[] moves) {
+    Color currentPlayer = getCurrentPlayer();
+    int count = pseudoLegalMoves(moves);
+    Bitboard bitboard = board.getBitboard();
+    if (bitboard == null
+        || Long.bitCount(bitboard.pieces(currentPlayer, 'K')) != 1
+        || bitboard.untracked(currentPlayer.next()) != 0) {
+      int legalCount = 0;
+      for (int i = 0; i < count; i++) {
+        if (!movePutsCurrentPlayerInCheck(board.toMove(moves[i]))) {
+          moves[legalCount++] = moves[i];
+        }
+      }
+      return legalCount;
+    }
+
+    int king = Long.numberOfTrailingZeros(bitboard.pieces(currentPlayer, 'K'));
+    long checkers = bitboard.attackers(king, currentPlayer.next());
+    long checkMask;
+    if (checkers == 0) {
+      checkMask = -1L;
+    } else if (Long.bitCount(checkers) == 1) {
+      checkMask = checkers | Bitboard.between(king, Long.numberOfTrailingZeros(checkers));
+    } else {
+      checkMask = 0;
+    }
+    long pinned = pinnedPieces(bitboard, king, currentPlayer);
+
+    int legalCount = 0;
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      int from = PackedMove.from(move);
+      int to = PackedMove.to(move);
+      boolean legal;
+      if (from == king || PackedMove.is(move, PackedMove.EN_PASSANT)) {
+        legal = !movePutsCurrentPlayerInCheck(board.toMove(move));
+      } else {
+        legal =
+            (checkMask & 1L << to) != 0
+                && ((pinned & 1L << from) == 0
+                    || (Bitboard.between(king, to) & 1L << from) != 0
+                    || (Bitboard.between(king, from) & 1L << to) != 0);
+      }
+      if (legal) {
+        moves[legalCount++] = move;
+      }
+    }
+    return legalCount;
+  }
+
+  // Generates the moves of the current player ignoring checks. On 8x8 boards the moves of each
+  // piece are cached by square until a move changes a square the piece could reach. Kings, pieces
+  // of untracked types and pawns that can capture en passant are always generated, since their
+  // moves depend on more than the squares around them.
+  private int pseudoLegalMoves(int[] moves) {
+    List<Piece> pieces = board.getPieces().get(getCurrentPlayer());
+    Bitboard bitboard = board.getBitboard();
+    int count = 0;
+    if (bitboard == null) {
+      for (int i = 0; i < pieces.size(); i++) {
+        count = pieces.get(i).generateMoves(moves, count);
+      }
+      return count;
+    }
+    if (board.getKey() != cacheKey) {
+      Arrays.fill(cachedMoveCounts, -1);
+      cacheKey = board.getKey();
+    }
+    Color currentPlayer = getCurrentPlayer();
+    long uncached = bitboard.pieces(currentPlayer, 'K') | bitboard.untracked(currentPlayer);
+    if (board.getEnPassant() >= 0) {
+      uncached |=
+          Bitboard.pawnAttacks(currentPlayer.next(), board.getEnPassant())
+              & bitboard.pieces(currentPlayer, 'P');
+    }
+    int slotSize = PackedMove.maxPieceMoves(board);
+    for (int i = 0; i < pieces.size(); i++) {
+      Piece piece = pieces.get(i);
+      int square = board.index(piece.getPos());
+      int cachedCount = cachedMoveCounts[square];
+      if (cachedCount >= 0) {
+        System.arraycopy(cachedMoves, square * slotSize, moves, count, cachedCount);
+        count += cachedCount;
+      } else {
+        int start = count;
+        count = piece.generateMoves(moves, count);
+        if ((uncached & 1L << square) == 0) {
+          System.arraycopy(moves, start, cachedMoves, square * slotSize, count - start);
+          cachedMoveCounts[square] = count - start;
+        }
+      }
+    }
+    return count;
+  }
+
+  private void play(Move move) {
+    long key = board.getKey();
+    rememberOccupied();
+    board.move(move);
+    dropStaleMoves(key);
+  }
+
+  // Remembers the occupied squares before a change to the board, so that cached moves can be
+  // dropped after it
+  private void rememberOccupied() {
+    Bitboard bitboard = board.getBitboard();
+    if (bitboard != null) {
+      whiteBeforeChange = bitboard.pieces(WHITE);
+      blackBeforeChange = bitboard.pieces(BLACK);
+    }
+  }
+
+  // Drops the cached moves of every piece that could move to or through a square whose occupant
+  // changed: sliders seeing the square, knights a knight step away and pawns next to it or two
+  // squares away on its column. Kings are never cached.
+  private void dropStaleMoves(long keyBeforeChange) {
+    Bitboard bitboard = board.getBitboard();
+    if (bitboard == null || keyBeforeChange != cacheKey) {
+      return;
+    }
+    long changed =
+        whiteBeforeChange ^ bitboard.pieces(WHITE) | blackBeforeChange ^ bitboard.pieces(BLACK);
+    long occupied = bitboard.occupied();
+    long queens = bitboard.pieces(WHITE, 'Q') | bitboard.pieces(BLACK, 'Q');
+    long rooks = bitboard.pieces(WHITE, 'R') | bitboard.pieces(BLACK, 'R') | queens;
+    long bishops = bitboard.pieces(WHITE, 'B') | bitboard.pieces(BLACK, 'B') | queens;
+    long knights = bitboard.pieces(WHITE, 'N') | bitboard.pieces(BLACK, 'N');
+    long pawns = bitboard.pieces(WHITE, 'P') | bitboard.pieces(BLACK, 'P');
+    long stale = changed;
+    for (; changed != 0; changed &= changed - 1) {
+      int square = Long.numberOfTrailingZeros(changed);
+      stale |=
+          Bitboard.rookAttacks(square, occupied) & (rooks | pawns)
+              | Bitboard.bishopAttacks(square, occupied) & bishops
+              | Bitboard.knightAttacks(square) & knights
+              | Bitboard.kingAttacks(square) & pawns;
+    }
+    for (; stale != 0; stale &= stale - 1) {
+      cachedMoveCounts[Long.numberOfTrailingZeros(stale)] = -1;
+    }
+    cacheKey = board.getKey();
+  }
+
+  // Finds the pieces of the specified color that are the only piece between their king and an
+  // enemy sliding piece, which may then only move along the line between the two
+  private static long pinnedPieces(Bitboard bitboard, int king, Color color) {
+    Color enemy = color.next();
+    long enemyQueens = bitboard.pieces(enemy, 'Q');
+    long snipers =
+        Bitboard.rookAttacks(king, 0) & (bitboard.pieces(enemy, 'R') | enemyQueens)
+            | Bitboard.bishopAttacks(king, 0) & (bitboard.pieces(enemy, 'B') | enemyQueens);
+    long pinned = 0;
+    for (; snipers != 0; snipers &= snipers - 1) {
+      long blockers =
+          Bitboard.between(king, Long.numberOfTrailingZeros(snipers)) & bitboard.occupied();
+      if (Long.bitCount(blockers) == 1) {
+        pinned |= blockers & bitboard.pieces(color);
+      }
+    }
+    return pinned;
   }
 
   private boolean movePutsCurrentPlayerInCheck(Move move) {
+    Color currentPlayer = getCurrentPlayer();
     board.move(move);
     if (board.kingInCheck(currentPlayer)) {
       board.undoMove();
@@ -177,188 +374,144 @@ public class Game {
     if (state() == IN_PROGRESS) {
       Move move = legalMoves().get(from).get(to);
       if (move != null) {
-        board.move(move);
-        currentPlayer = currentPlayer.next();
+        play(move);
       }
-      legalMoves = new HashMap<>();
     }
   }
 
   /**
-   * Makes a move according to the specified move written in chess notation.
+   * Makes the specified packed move, as returned by {@link #legalMoves(int[])}, without checking
+   * whether it is legal or whether the game has ended.
+   *
+   * @param move the packed move to make
+   */
+  public void move(int move) {
+    play(board.toMove(move));
+  }
+
+  /** Undoes the last move. */
+  public void undoMove() {
+    long key = board.getKey();
+    rememberOccupied();
+    board.undoMove();
+    dropStaleMoves(key);
+  }
+
+  /**
+   * Makes a move according to the specified move written in chess notation, if the game is in
+   * progress. See {@link Notation#parse(CharSequence, int, int)} for the notations accepted.
    *
    * @param moveString a move written in chess notation
+   * @throws IllegalMoveException if the string does not name exactly one legal move
    */
   public void makeMove(String moveString) {
     if (state() == IN_PROGRESS) {
-      if (moveString.startsWith("O-O")) {
-        Stream<Pos> fromCanditates =
-            legalMoves().keySet().stream().filter((from) -> board.get(from).getTypeId() == 'K');
-        if (fromCanditates.count() != 1) {
-          throw new IllegalArgumentException();
-        }
-        Pos from = fromCanditates.findFirst().orElseThrow(IllegalArgumentException::new);
-        Pos to = moveString.equals("O-O") ? new Pos(from.getRow(), 6) : new Pos(from.getRow(), 2);
-        board.move(legalMoves().get(from).get(to));
-      } else {
-        moveString = moveString.replace("x", "").replace("+", "");
-        char typeId;
-        String fromString;
-        Pos to;
-        if (Character.isUpperCase(moveString.charAt(0))) {
-          typeId = moveString.charAt(0);
-          fromString = moveString.substring(1, moveString.length() - 2);
-          to = new Pos(moveString.substring(moveString.length() - 2));
-        } else {
-          typeId = 'P';
-          if (Character.isUpperCase(moveString.charAt(moveString.length() - 1))) {
-            fromString = moveString.substring(0, moveString.length() - 3);
-            to = new Pos(moveString.substring(moveString.length() - 3, moveString.length() - 1));
-          } else {
-            fromString = moveString.substring(0, moveString.length() - 2);
-            to = new Pos(moveString.substring(moveString.length() - 2));
-          }
-        }
-        List<Pos> fromCandidates =
-            legalMoves()
-                .keySet()
-                .stream()
-                .filter(
-                    (from) ->
-                        board.get(from).getTypeId() == typeId
-                            && legalMoves().get(from).containsKey(to))
-                .collect(Collectors.toList());
-        if (fromString.length() == 1) {
-          if (Character.isDigit(fromString.charAt(0))) {
-            fromCandidates =
-                fromCandidates
-                    .stream()
-                    .filter(
-                        (fromCandidate) -> rowToString(fromCandidate.getRow()).equals(fromString))
-                    .collect(Collectors.toList());
-          } else {
-            fromCandidates =
-                fromCandidates
-                    .stream()
-                    .filter(
-                        (fromCandidate) -> colToString(fromCandidate.getCol()).equals(fromString))
-                    .collect(Collectors.toList());
-          }
-        } else if (fromString.length() == 2) {
-          fromCandidates =
-              fromCandidates
-                  .stream()
-                  .filter((fromCandidate) -> fromCandidate.toString().equals(fromString))
-                  .collect(Collectors.toList());
-        }
-        if (fromCandidates.size() != 1) {
-          throw new IllegalArgumentException();
-        }
-        Pos from = fromCandidates.get(0);
-        board.move(legalMoves().get(from).get(to));
-        if (board.get(to).getTypeId() == 'P') {
-          Pawn pawn = (Pawn) board.get(to);
-          if (pawn.canPromote()) {
-            pawn.promoteInto(moveString.charAt(moveString.length() - 1));
-          }
-        }
+      if (notation == null) {
+        notation = new Notation(this);
       }
-      currentPlayer = currentPlayer.next();
-      legalMoves = new HashMap<>();
+      move(notation.parse(moveString, 0, moveString.length()));
     }
   }
 
   /**
-   * Returns the current state of the game.
+   * Returns the current state of the game. The state is computed once per position and kept until
+   * the position changes.
    *
    * @return the current state of the game
    */
   public State state() {
-    // Fifty moves rule
-    if (board.getHistory().size() >= 100
-        && board
-            .getHistory()
-            .subList(board.getHistory().size() - 100, board.getHistory().size())
-            .stream()
-            .allMatch((move) -> move.getPiece().getTypeId() != 'P' && move.getCaptured() == null)) {
-      return DRAW;
+    refreshMemo();
+    if (state == null) {
+      state = computeState();
+    }
+    return state;
+  }
+
+  /**
+   * Returns whether the current player is in check. The answer is kept until the position
+   * changes.
+   *
+   * @return whether the current player is in check
+   */
+  public boolean inCheck() {
+    refreshMemo();
+    if (inCheck == null) {
+      inCheck = board.kingInCheck(getCurrentPlayer());
     }
+    return inCheck;
+  }
 
-    // Recurring board state rule
-    Map<String, Integer> boardStates = new HashMap<>();
-    for (int i = board.getHistory().size() - 1;
-        i >= 0
-            && board.getHistory().get(i).getCaptured() == null
-            && !(board.getHistory().get(i) instanceof CastlingMove);
-        i--) {
-      boardStates.put(
-          board.getBoardStates().get(i),
-          boardStates.getOrDefault(board.getBoardStates().get(i), 0) + 1);
+  /**
+   * Returns the number of legal moves of the current player. The count is kept until the position
+   * changes.
+   *
+   * @return the number of legal moves
+   */
+  public int legalMoveCount() {
+    refreshMemo();
+    if (legalMoveCount < 0) {
+      int size = board.getPieces().get(getCurrentPlayer()).size() * PackedMove.maxPieceMoves(board);
+      if (moveBuffer == null || moveBuffer.length < size) {
+        moveBuffer = new int[size];
+      }
+      legalMoveCount = legalMoves(moveBuffer);
     }
-    if (boardStates.values().stream().anyMatch((occurrences) -> occurrences >= 3)) {
+    return legalMoveCount;
+  }
+
+  // Forgets the remembered state, check, legal move count and legal move map if the position has
+  // changed since they were computed. The key and ply catch moves and undos as well as pieces added
+  // to or removed from the board directly, and a move that is made and undone again, as when
+  // notation looks for check, keeps them.
+  private void refreshMemo() {
+    if (memoPly != board.getHistory().size() || memoKey != board.getKey()) {
+      memoPly = board.getHistory().size();
+      memoKey = board.getKey();
+      legalMoves = null;
+      state = null;
+      inCheck = null;
+      legalMoveCount = -1;
+    }
+  }
+
+  private State computeState() {
+    // Fifty moves rule
+    if (board.getHalfmoveClock() >= 100) {
       return DRAW;
     }
 
-    // Check if checkmate is impossible
-    String whitePieces =
-        board
-            .getPieces()
-            .get(WHITE)
-            .stream()
-            .map(Piece::getTypeId)
-            .sorted()
-            .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-            .toString();
-    String blackPieces =
-        board
-            .getPieces()
-            .get(BLACK)
-            .stream()
-            .map(Piece::getTypeId)
-            .sorted()
-            .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-            .toString();
-    if ((whitePieces.equals("K") && blackPieces.equals("K"))
-        || (whitePieces.equals("BK") && blackPieces.equals("K"))
-        || (whitePieces.equals("K") && blackPieces.equals("BK"))
-        || (whitePieces.equals("KN") && blackPieces.equals("K"))
-        || (whitePieces.equals("K") && blackPieces.equals("KN"))) {
+    // Recurring board state rule, where only positions with the same side to move since the last
+    // irreversible move can be equal
+    int occurrences = 1;
+    for (int i = board.getHistory().size() - 2; i >= board.getIrreversiblePly(); i -= 2) {
+      if (board.getKey(i) == board.getKey()) {
+        occurrences++;
+      }
+    }
+    if (occurrences >= 3) {
       return DRAW;
     }
-    if (whitePieces.equals("BK") && blackPieces.equals("BK")) {
-      Pos whiteBishopPos =
-          board
-              .getPieces()
-              .get(WHITE)
-              .stream()
-              .filter((piece) -> piece.getTypeId() == 'B')
-              .findFirst()
-              .get()
-              .getPos();
-      Pos blackBishopPos =
-          board
-              .getPieces()
-              .get(BLACK)
-              .stream()
-              .filter((piece) -> piece.getTypeId() == 'B')
-              .findFirst()
-              .get()
-              .getPos();
-      if ((whiteBishopPos.getRow()
-                  + whiteBishopPos.getCol()
-                  + blackBishopPos.getRow()
-                  + blackBishopPos.getCol())
-              % 2
-          == 0) {
+
+    // Check if checkmate is impossible, which needs few enough pieces that the material counts
+    // are exact
+    if (board.getPieces().get(WHITE).size() + board.getPieces().get(BLACK).size() <= 4) {
+      long material = board.getMaterial();
+      for (long deadDraw : DEAD_DRAWS) {
+        if (material == deadDraw) {
+          return DRAW;
+        }
+      }
+      if (material == BISHOP_EACH
+          && board.getLightSquareBishops(WHITE) == board.getLightSquareBishops(BLACK)) {
         return DRAW;
       }
     }
 
-    if (legalMoves().values().stream().anyMatch((moves) -> !moves.isEmpty())) {
+    if (legalMoveCount() > 0) {
       return IN_PROGRESS;
     }
-    if (board.kingInCheck(currentPlayer)) {
-      if (currentPlayer == WHITE) {
+    if (inCheck()) {
+      if (getCurrentPlayer() == WHITE) {
         return BLACK_WON;
       } else {
         return WHITE_WON;
@@ -367,12 +520,23 @@ public class Game {
     return DRAW;
   }
 
+  private static long material(String whitePieces, String blackPieces) {
+    long material = 0;
+    for (int i = 0; i < whitePieces.length(); i++) {
+      material += Board.materialOf(WHITE, whitePieces.charAt(i));
+    }
+    for (int i = 0; i < blackPieces.length(); i++) {
+      material += Board.materialOf(BLACK, blackPieces.charAt(i));
+    }
+    return material;
+  }
+
   public Board getBoard() {
     return board;
   }
 
   public Color getCurrentPlayer() {
-    return currentPlayer;
+    return board.getSideToMove();
   }
 
   public enum State {
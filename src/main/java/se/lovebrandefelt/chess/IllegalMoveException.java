@@ -0,0 +1,45 @@
+package se.lovebrandefelt.chess;
+
+/** Thrown when a move written in chess notation does not name exactly one legal move. */
+public class IllegalMoveException extends IllegalArgumentException {
+  private static final long serialVersionUID = 1L;
+
+  private final String move;
+  private final Reason reason;
+
+  /**
+   * Creates a new exception for the specified move failing for the specified reason.
+   *
+   * @param move the move as it was written
+   * @param reason the reason the move was rejected
+   */
+  public IllegalMoveException(String move, Reason reason) {
+    super(reason.getDescription() + ": " + move);
+    this.move = move;
+    this.reason = reason;
+  }
+
+  public String getMove() {
+    return move;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+
+  public enum Reason {
+    MALFORMED("Not a move in chess notation"),
+    ILLEGAL("No legal move matches"),
+    AMBIGUOUS("More than one legal move matches");
+
+    private final String description;
+
+    Reason(String description) {
+      this.description = description;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+  }
+}
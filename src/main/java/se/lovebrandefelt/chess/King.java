@@ -1,106 +1,102 @@
 package se.lovebrandefelt.chess;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import static se.lovebrandefelt.chess.PackedMove.CASTLING;
 
 public class King extends Piece {
+  static final int[][] DIRECTIONS = {
+    {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}
+  };
+
   public King(Color color) {
     super(color, 'K');
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    Arrays.asList(
-            new Pos(-1, -1),
-            new Pos(-1, 0),
-            new Pos(-1, 1),
-            new Pos(0, -1),
-            new Pos(0, 1),
-            new Pos(1, -1),
-            new Pos(1, 0),
-            new Pos(1, 1))
-        .forEach((direction -> addMoveInDirection(direction, legalMoves)));
+  public Piece copy() {
+    return withMoveCount(new King(getColor()));
+  }
+
+  /**
+   * Returns whether this king may ever castle. Only kings that may castle are given castling
+   * rights by the board.
+   *
+   * @return whether this king may castle
+   */
+  public boolean canCastle() {
+    return true;
+  }
+
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    count = generateRecursionSafeMoves(moves, count);
 
-    // Checks for castling moves
-    if (!getBoard().kingInCheck(getColor())
-        && getBoard().getHistory().stream().noneMatch((move) -> move.getPiece() == this)) {
-      Pos to = new Pos(getPos().getRow(), 6);
-      CastlingMove castlingMove = new CastlingMove(getPos(), to);
-      if (getPos().getCol() < 6
-          || (getPos().getCol() == 6 && getBoard().isEmpty(getPos().offset(new Pos(0, -1))))) {
-        for (Pos pos = getPos().offset(new Pos(0, 1));
-             getBoard().isInsideBounds(pos);
-             pos = pos.offset(new Pos(0, 1))) {
-          if (pos.getCol() < 7 && getBoard().isThreatened(pos, getColor().next())) {
+    // Checks for castling moves. The castling rights of the board say whether the king and the
+    // rooks have moved, and the squares are checked by index, so no history or positions are used.
+    Board board = getBoard();
+    int from = board.index(getPos());
+    if (!board.canCastleWith(from) || board.kingInCheck(getColor())) {
+      return count;
+    }
+    Color enemy = getColor().next();
+    int col = getPos().getCol();
+    if (col < 6 || (col == 6 && board.isEmpty(from - 1))) {
+      boolean rookFound = false;
+      for (int toCol = col + 1; toCol < board.cols(); toCol++) {
+        int square = from + toCol - col;
+        if (toCol < 7 && board.isThreatened(square, enemy)) {
+          break;
+        }
+        if (!board.isEmpty(square)) {
+          if (rookFound || !isCastlingRook(square)) {
             break;
           }
-          if (!getBoard().isEmpty(pos)) {
-            Piece piece = getBoard().get(pos);
-            if (castlingMove.getRook() == null
-                && piece.getTypeId() == 'R'
-                && getBoard().getHistory().stream().noneMatch((move) -> move.getPiece() == piece)
-                && piece.getColor() == getColor()) {
-              castlingMove.setRook((Rook) piece);
-            } else {
-              break;
-            }
-          }
-          if (pos.getCol() > 5 && castlingMove.getRook() != null) {
-            legalMoves.put(to, castlingMove);
-          }
+          rookFound = true;
+        }
+        if (toCol > 5 && rookFound) {
+          moves[count++] = PackedMove.of(from, from + 6 - col, CASTLING);
+          break;
         }
       }
-      to = new Pos(getPos().getRow(), 2);
-      castlingMove = new CastlingMove(getPos(), to);
-      if (getPos().getCol() > 2
-          || (getPos().getCol() == 2
-          && getBoard().isEmpty(getPos().offset(new Pos(0, 1)))
-          && !getBoard().isThreatened(getPos().offset(new Pos(0, 1)), getColor().next()))
-          || (getPos().getCol() == 1
-          && getBoard().isEmpty(getPos().offset(new Pos(0, 1)))
-          && !getBoard().isThreatened(getPos().offset(new Pos(0, 1)), getColor().next())
-          && getBoard().isEmpty(getPos().offset(new Pos(0, 2))))) {
-        for (Pos pos = getPos().offset(new Pos(0, -1));
-            getBoard().isInsideBounds(pos);
-            pos = pos.offset(new Pos(0, -1))) {
-          if (pos.getCol() > 1 && getBoard().isThreatened(pos, getColor().next())) {
+    }
+    if (col > 2
+        || (col == 2 && board.isEmpty(from + 1) && !board.isThreatened(from + 1, enemy))
+        || (col == 1
+            && board.isEmpty(from + 1)
+            && !board.isThreatened(from + 1, enemy)
+            && board.isEmpty(from + 2))) {
+      boolean rookFound = false;
+      for (int toCol = col - 1; toCol >= 0; toCol--) {
+        int square = from + toCol - col;
+        if (toCol > 1 && board.isThreatened(square, enemy)) {
+          break;
+        }
+        if (!board.isEmpty(square)) {
+          if (rookFound || !isCastlingRook(square)) {
             break;
           }
-          if (!getBoard().isEmpty(pos)) {
-            Piece piece = getBoard().get(pos);
-            if (castlingMove.getRook() == null
-                && piece.getTypeId() == 'R'
-                && getBoard().getHistory().stream().noneMatch((move) -> move.getPiece() == piece)
-                && piece.getColor() == getColor()) {
-              castlingMove.setRook((Rook) piece);
-            } else {
-              break;
-            }
-          }
-          if (pos.getCol() < 3 && castlingMove.getRook() != null) {
-            legalMoves.put(to, castlingMove);
-          }
+          rookFound = true;
+        }
+        if (toCol < 3 && rookFound) {
+          moves[count++] = PackedMove.of(from, from + 2 - col, CASTLING);
+          break;
         }
       }
     }
-    return legalMoves;
+    return count;
+  }
+
+  private boolean isCastlingRook(int square) {
+    Piece piece = getBoard().get(square);
+    return piece.getTypeId() == 'R'
+        && piece.getColor() == getColor()
+        && getBoard().canCastleWith(square);
   }
 
   @Override
-  public Map<Pos, Move> recursionSafeLegalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    Arrays.asList(
-            new Pos(-1, -1),
-            new Pos(-1, 0),
-            new Pos(-1, 1),
-            new Pos(0, -1),
-            new Pos(0, 1),
-            new Pos(1, -1),
-            new Pos(1, 0),
-            new Pos(1, 1))
-        .forEach((direction -> addMoveInDirection(direction, legalMoves)));
-    return legalMoves;
+  public int generateRecursionSafeMoves(int[] moves, int count) {
+    for (int[] direction : DIRECTIONS) {
+      count = addMoveInDirection(direction, moves, count);
+    }
+    return count;
   }
 }
@@ -1,27 +1,24 @@
 package se.lovebrandefelt.chess;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-
 public class Knight extends Piece {
+  static final int[][] DIRECTIONS = {
+    {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}
+  };
+
   public Knight(Color color) {
     super(color, 'N');
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    Arrays.asList(
-            new Pos(-2, -1),
-            new Pos(-2, 1),
-            new Pos(-1, -2),
-            new Pos(-1, 2),
-            new Pos(1, -2),
-            new Pos(1, 2),
-            new Pos(2, -1),
-            new Pos(2, 1))
-        .forEach((direction -> addMoveInDirection(direction, legalMoves)));
-    return legalMoves;
+  public Piece copy() {
+    return withMoveCount(new Knight(getColor()));
+  }
+
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    for (int[] direction : DIRECTIONS) {
+      count = addMoveInDirection(direction, moves, count);
+    }
+    return count;
   }
 }
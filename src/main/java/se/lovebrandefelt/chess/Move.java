@@ -40,9 +40,10 @@ public class Move {
    * @param board the board to perform this move on.
    */
   protected void perform(Board board) {
-    captured = board.remove(to);
-    piece = board.add(board.get(from), to);
-    board.remove(from);
+    captured = board.take(to);
+    piece = board.take(from);
+    piece.setMoveCount(piece.getMoveCount() + 1);
+    board.put(piece, to);
   }
 
   /**
@@ -50,11 +51,11 @@ public class Move {
    * @param board the board to undo this move on.
    */
   protected void undo(Board board) {
-    board.add(piece, from);
+    board.take(to);
+    piece.setMoveCount(piece.getMoveCount() - 1);
+    board.put(piece, from);
     if (captured != null) {
-      board.add(captured, to);
-    } else {
-      board.remove(to);
+      board.put(captured, to);
     }
   }
 }
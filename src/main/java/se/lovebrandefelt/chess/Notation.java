@@ -0,0 +1,439 @@
+package se.lovebrandefelt.chess;
+
+import static se.lovebrandefelt.chess.IllegalMoveException.Reason.AMBIGUOUS;
+import static se.lovebrandefelt.chess.IllegalMoveException.Reason.ILLEGAL;
+import static se.lovebrandefelt.chess.IllegalMoveException.Reason.MALFORMED;
+
+import java.util.Arrays;
+import se.lovebrandefelt.chess.IllegalMoveException.Reason;
+
+/**
+ * Reads and writes moves in standard algebraic notation (SAN), long algebraic notation (LAN) or UCI
+ * notation against the legal moves of a game. The notation is scanned once without creating any
+ * objects. The legal moves of the current position are generated once into an array that is
+ * reused between calls, together with a table of how each move must be disambiguated in SAN.
+ */
+public class Notation {
+  private static final int FILE = 1;
+  private static final int RANK = 2;
+  private static final int UNKNOWN = -1;
+
+  private final Game game;
+  private int[] moves;
+  private int[] disambiguations;
+  private int[] replies;
+  private int moveCount;
+  private long movesKey;
+  private int movesPly;
+
+  /**
+   * Creates a new notation reader for the specified game.
+   *
+   * @param game the game to read moves for
+   */
+  public Notation(Game game) {
+    this.game = game;
+    moves = new int[PackedMove.MAX_MOVES];
+    disambiguations = new int[PackedMove.MAX_MOVES];
+    replies = new int[PackedMove.MAX_MOVES];
+    movesPly = -1;
+  }
+
+  /**
+   * Returns the legal packed move written between the specified indices of the specified text.
+   * Check, mate and annotation suffixes are ignored, castling may be written with letters or
+   * digits, and a promotion without a piece promotes into a queen. A move written from square to
+   * square, as in LAN or UCI notation, may leave out the piece and write the promotion in lower
+   * case, and castling may then also be written as the king taking its own rook.
+   *
+   * @param text the text holding the move
+   * @param start the index of the first character of the move
+   * @param end the index after the last character of the move
+   * @return the legal packed move
+   * @throws IllegalMoveException if the text is not a move or does not name exactly one legal move
+   */
+  public int parse(CharSequence text, int start, int end) {
+    int moveStart = start;
+    int moveEnd = end;
+    while (end > start && isSuffix(text.charAt(end - 1))) {
+      end--;
+    }
+    if (end <= start) {
+      throw illegalMove(text, moveStart, moveEnd, MALFORMED);
+    }
+    Board board = game.getBoard();
+    int count = legalMoves(board);
+
+    int castling = castling(text, start, end);
+    if (castling != 0) {
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+        int move = moves[i];
+        if (PackedMove.is(move, PackedMove.CASTLING)
+            && (PackedMove.to(move) % board.cols() == 2) == (castling == 2)) {
+          if (found != 0) {
+            throw illegalMove(text, moveStart, moveEnd, AMBIGUOUS);
+          }
+          found = move;
+        }
+      }
+      if (found == 0) {
+        throw illegalMove(text, moveStart, moveEnd, ILLEGAL);
+      }
+      return found;
+    }
+
+    char typeId = 0;
+    char first = text.charAt(start);
+    if (first == 'N' || first == 'B' || first == 'R' || first == 'Q' || first == 'K') {
+      typeId = first;
+      start++;
+    }
+    char promotion = 0;
+    char last = text.charAt(end - 1);
+    if (typeId == 0 && PackedMove.PROMOTIONS.indexOf(last) >= 0) {
+      promotion = last;
+      end--;
+      if (end > start && text.charAt(end - 1) == '=') {
+        end--;
+      }
+    } else if (typeId == 0
+        && end - start > 2
+        && isDigit(text.charAt(end - 2))
+        && PackedMove.PROMOTIONS.indexOf(Character.toUpperCase(last)) >= 0) {
+      promotion = Character.toUpperCase(last);
+      end--;
+    }
+
+    int rankEnd = end;
+    int toRow = 0;
+    int digit = 1;
+    while (end > start && isDigit(text.charAt(end - 1))) {
+      toRow += (text.charAt(--end) - '0') * digit;
+      digit *= 10;
+    }
+    if (end == rankEnd || end == start || !isFile(text.charAt(end - 1))) {
+      throw illegalMove(text, moveStart, moveEnd, MALFORMED);
+    }
+    int toCol = text.charAt(--end) - 'a';
+    toRow--;
+    if (toRow < 0 || toRow >= board.rows() || toCol >= board.cols()) {
+      throw illegalMove(text, moveStart, moveEnd, MALFORMED);
+    }
+    int to = board.index(toRow, toCol);
+
+    if (end > start && isSeparator(text.charAt(end - 1))) {
+      end--;
+    }
+    int fromCol = -1;
+    int fromRow = -1;
+    if (start < end && isFile(text.charAt(start))) {
+      fromCol = text.charAt(start++) - 'a';
+    }
+    if (start < end) {
+      fromRow = 0;
+      while (start < end && isDigit(text.charAt(start))) {
+        fromRow = fromRow * 10 + text.charAt(start++) - '0';
+      }
+      fromRow--;
+    }
+    if (start < end) {
+      throw illegalMove(text, moveStart, moveEnd, MALFORMED);
+    }
+    // A move without a piece is a pawn move, unless it names the square it is made from
+    if (typeId == 0 && (fromCol < 0 || fromRow < 0)) {
+      typeId = 'P';
+    }
+
+    int found = 0;
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      int from = PackedMove.from(move);
+      char movePromotion = PackedMove.promotion(move);
+      boolean toMatches;
+      if (fromCol >= 0 && fromRow >= 0 && PackedMove.is(move, PackedMove.CASTLING)) {
+        toMatches = uciTo(board, move) == to || board.castlingRook(move) == to;
+      } else {
+        toMatches = PackedMove.to(move) == to;
+      }
+      if (toMatches
+          && (typeId == 0 || board.get(from).getTypeId() == typeId)
+          && (fromCol < 0 || from % board.cols() == fromCol)
+          && (fromRow < 0 || from / board.cols() == fromRow)
+          && (movePromotion == promotion || promotion == 0 && movePromotion == 'Q')) {
+        if (found != 0) {
+          throw illegalMove(text, moveStart, moveEnd, AMBIGUOUS);
+        }
+        found = move;
+      }
+    }
+    if (found == 0) {
+      throw illegalMove(text, moveStart, moveEnd, ILLEGAL);
+    }
+    return found;
+  }
+
+  /**
+   * Returns the specified legal packed move in SAN, such as Nbd7, exd6, e8=Q+ or O-O-O#.
+   *
+   * @param move the legal packed move
+   * @return the move in SAN
+   * @throws IllegalMoveException if the move is not legal
+   */
+  public String san(int move) {
+    Board board = game.getBoard();
+    int index = indexOf(board, move);
+    StringBuilder san = new StringBuilder(8);
+    int from = PackedMove.from(move);
+    int to = PackedMove.to(move);
+    if (PackedMove.is(move, PackedMove.CASTLING)) {
+      san.append(to % board.cols() == 2 ? "O-O-O" : "O-O");
+    } else {
+      char typeId = board.get(from).getTypeId();
+      boolean capture = PackedMove.is(move, PackedMove.CAPTURE);
+      if (typeId == 'P') {
+        if (capture) {
+          san.append(file(from % board.cols()));
+        }
+      } else {
+        san.append(typeId);
+        int disambiguation = disambiguation(board, index);
+        if ((disambiguation & FILE) != 0) {
+          san.append(file(from % board.cols()));
+        }
+        if ((disambiguation & RANK) != 0) {
+          san.append(from / board.cols() + 1);
+        }
+      }
+      if (capture) {
+        san.append('x');
+      }
+      appendSquare(san, board, to);
+      if (PackedMove.promotion(move) != 0) {
+        san.append('=').append(PackedMove.promotion(move));
+      }
+    }
+    return appendCheck(san, move).toString();
+  }
+
+  /**
+   * Returns the SAN of the legal packed move performed by the specified Move object. A pawn move to
+   * the last row that is not a {@link PromotionMove}, as returned by {@link Game#legalMoves()}, is
+   * written as a promotion into a queen, as when the promotion is left out in {@link #parse}.
+   *
+   * @param move the Move object
+   * @return the move in SAN
+   * @throws IllegalMoveException if the move is not legal
+   */
+  public String san(Move move) {
+    Board board = game.getBoard();
+    int from = board.index(move.getFrom());
+    int to = board.index(move.getTo());
+    char promotion = move instanceof PromotionMove ? ((PromotionMove) move).getTypeId() : 'Q';
+    int count = legalMoves(board);
+    for (int i = 0; i < count; i++) {
+      char movePromotion = PackedMove.promotion(moves[i]);
+      if (PackedMove.from(moves[i]) == from
+          && PackedMove.to(moves[i]) == to
+          && (movePromotion == 0 || movePromotion == promotion)) {
+        return san(moves[i]);
+      }
+    }
+    throw new IllegalMoveException(move.getFrom().toString() + move.getTo(), ILLEGAL);
+  }
+
+  /**
+   * Returns the specified legal packed move in LAN, such as Ng1-f3, e4xd5, e7-e8=Q+ or O-O.
+   *
+   * @param move the legal packed move
+   * @return the move in LAN
+   * @throws IllegalMoveException if the move is not legal
+   */
+  public String lan(int move) {
+    Board board = game.getBoard();
+    indexOf(board, move);
+    StringBuilder lan = new StringBuilder(10);
+    int from = PackedMove.from(move);
+    if (PackedMove.is(move, PackedMove.CASTLING)) {
+      lan.append(PackedMove.to(move) % board.cols() == 2 ? "O-O-O" : "O-O");
+    } else {
+      char typeId = board.get(from).getTypeId();
+      if (typeId != 'P') {
+        lan.append(typeId);
+      }
+      appendSquare(lan, board, from);
+      lan.append(PackedMove.is(move, PackedMove.CAPTURE) ? 'x' : '-');
+      appendSquare(lan, board, PackedMove.to(move));
+      if (PackedMove.promotion(move) != 0) {
+        lan.append('=').append(PackedMove.promotion(move));
+      }
+    }
+    return appendCheck(lan, move).toString();
+  }
+
+  /**
+   * Returns the specified packed move in UCI notation, such as g1f3, e1g1 or e7e8q. Castling is
+   * written as the king moving to its square when the king starts on the e-file and the rook in
+   * the corner, as in standard chess, and otherwise as the king taking its own rook, such as g1h1,
+   * since the square the king moves to may then be its own or one it could step to.
+   *
+   * @param board the board the move is made on
+   * @param move the packed move
+   * @return the move in UCI notation
+   */
+  public static String uci(Board board, int move) {
+    StringBuilder uci = new StringBuilder(5);
+    appendSquare(uci, board, PackedMove.from(move));
+    appendSquare(uci, board, uciTo(board, move));
+    if (PackedMove.promotion(move) != 0) {
+      uci.append(Character.toLowerCase(PackedMove.promotion(move)));
+    }
+    return uci.toString();
+  }
+
+  // Returns the square a move is written to in UCI notation, which for castling other than standard
+  // castling is the square of the rook
+  private static int uciTo(Board board, int move) {
+    if (!PackedMove.is(move, PackedMove.CASTLING)) {
+      return PackedMove.to(move);
+    }
+    int rook = board.castlingRook(move);
+    int rookCol = rook % board.cols();
+    boolean corner = rookCol == 0 || rookCol == board.cols() - 1;
+    return PackedMove.from(move) % board.cols() == 4 && corner ? PackedMove.to(move) : rook;
+  }
+
+  // Generates the legal moves of the current position, unless they were already generated for it
+  private int legalMoves(Board board) {
+    int ply = board.getHistory().size();
+    if (board.getKey() == movesKey && ply == movesPly) {
+      return moveCount;
+    }
+    int size =
+        board.getPieces().get(game.getCurrentPlayer()).size() * PackedMove.maxPieceMoves(board);
+    if (moves.length < size) {
+      moves = new int[size];
+      disambiguations = new int[size];
+      replies = new int[size];
+    }
+    moveCount = game.legalMoves(moves);
+    Arrays.fill(disambiguations, 0, moveCount, UNKNOWN);
+    movesKey = board.getKey();
+    movesPly = ply;
+    return moveCount;
+  }
+
+  private int indexOf(Board board, int move) {
+    int count = legalMoves(board);
+    for (int i = 0; i < count; i++) {
+      if (moves[i] == move) {
+        return i;
+      }
+    }
+    throw new IllegalMoveException(uci(board, move), ILLEGAL);
+  }
+
+  // Fills in the disambiguations of every move of the same type to the same square as the move at
+  // the specified index: none if it is the only one, else the file if that tells it apart, else
+  // the rank if that does, else both
+  private int disambiguation(Board board, int index) {
+    if (disambiguations[index] != UNKNOWN) {
+      return disambiguations[index];
+    }
+    int to = PackedMove.to(moves[index]);
+    char typeId = board.get(PackedMove.from(moves[index])).getTypeId();
+    for (int i = 0; i < moveCount; i++) {
+      int from = PackedMove.from(moves[i]);
+      if (PackedMove.to(moves[i]) != to || board.get(from).getTypeId() != typeId) {
+        continue;
+      }
+      boolean sameFile = false;
+      boolean sameRank = false;
+      boolean ambiguous = false;
+      for (int j = 0; j < moveCount; j++) {
+        int other = PackedMove.from(moves[j]);
+        if (other != from
+            && PackedMove.to(moves[j]) == to
+            && board.get(other).getTypeId() == typeId) {
+          ambiguous = true;
+          sameFile |= other % board.cols() == from % board.cols();
+          sameRank |= other / board.cols() == from / board.cols();
+        }
+      }
+      if (!ambiguous) {
+        disambiguations[i] = 0;
+      } else if (!sameFile) {
+        disambiguations[i] = FILE;
+      } else if (!sameRank) {
+        disambiguations[i] = RANK;
+      } else {
+        disambiguations[i] = FILE | RANK;
+      }
+    }
+    return disambiguations[index];
+  }
+
+  // Appends + if the move gives check and # if it also leaves the opponent without legal moves,
+  // trying the move on the game and only generating replies when it gives check
+  private StringBuilder appendCheck(StringBuilder notation, int move) {
+    Board board = game.getBoard();
+    game.move(move);
+    if (board.kingInCheck(game.getCurrentPlayer())) {
+      int size =
+          board.getPieces().get(game.getCurrentPlayer()).size() * PackedMove.maxPieceMoves(board);
+      if (replies.length < size) {
+        replies = new int[size];
+      }
+      notation.append(game.legalMoves(replies) > 0 ? '+' : '#');
+    }
+    game.undoMove();
+    return notation;
+  }
+
+  private static void appendSquare(StringBuilder notation, Board board, int square) {
+    notation.append(file(square % board.cols())).append(square / board.cols() + 1);
+  }
+
+  private static char file(int col) {
+    return (char) ('a' + col);
+  }
+
+  private static IllegalMoveException illegalMove(
+      CharSequence text, int start, int end, Reason reason) {
+    return new IllegalMoveException(text.subSequence(start, end).toString(), reason);
+  }
+
+  // Returns 1 for O-O or 0-0, 2 for O-O-O or 0-0-0 and 0 for anything else
+  private static int castling(CharSequence text, int start, int end) {
+    char first = text.charAt(start);
+    if (first != 'O' && first != '0') {
+      return 0;
+    }
+    int length = end - start;
+    if (length != 3 && length != 5) {
+      return 0;
+    }
+    for (int i = start + 1; i < end; i += 2) {
+      if (text.charAt(i) != '-' || text.charAt(i + 1) != first) {
+        return 0;
+      }
+    }
+    return length == 3 ? 1 : 2;
+  }
+
+  private static boolean isSuffix(char c) {
+    return c == '+' || c == '#' || c == '!' || c == '?';
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == 'x' || c == ':' || c == '-';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isFile(char c) {
+    return c >= 'a' && c <= 'z';
+  }
+}
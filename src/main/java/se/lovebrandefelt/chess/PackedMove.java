@@ -0,0 +1,112 @@
+package se.lovebrandefelt.chess;
+
+/**
+ * Static helpers for moves packed into a single int. Bits 0-11 hold the square index moved from,
+ * bits 12-23 the square index moved to, bits 24-27 the flags and bits 28-30 the type index of the
+ * piece to promote into, or 0 if the move is not a promotion. Square indices of 12 bits limit
+ * boards to {@link #MAX_SQUARES} squares, which the {@link Board} constructor enforces.
+ */
+public final class PackedMove {
+  /** The maximum number of moves in any position on an 8x8 board. */
+  public static final int MAX_MOVES = 256;
+
+  /** The maximum number of squares of a board whose moves can be packed. */
+  public static final int MAX_SQUARES = 1 << 12;
+
+  public static final int QUIET = 0;
+  public static final int CAPTURE = 1;
+  public static final int DOUBLE_STEP = 1 << 1;
+  public static final int EN_PASSANT = 1 << 2;
+  public static final int CASTLING = 1 << 3;
+
+  /** The typeIds a pawn can promote into. */
+  public static final String PROMOTIONS = "QRBN";
+
+  private static final int SQUARE_MASK = 0xFFF;
+  private static final int TO_SHIFT = 12;
+  private static final int FLAGS_SHIFT = 24;
+  private static final int FLAGS_MASK = 0xF;
+  private static final int PROMOTION_SHIFT = 28;
+  private static final int PROMOTION_MASK = 0x7;
+
+  private PackedMove() {}
+
+  /**
+   * Returns a packed move from the specified square to the specified square with the specified
+   * flags.
+   *
+   * @param from the square index to move from
+   * @param to the square index to move to
+   * @param flags the flags of the move
+   * @return the packed move
+   */
+  public static int of(int from, int to, int flags) {
+    return from | to << TO_SHIFT | flags << FLAGS_SHIFT;
+  }
+
+  /**
+   * Returns the specified packed move promoting into a piece of the type specified by typeId.
+   *
+   * @param move the packed move
+   * @param typeId the type of the piece to promote into
+   * @return the packed move with the promotion
+   */
+  public static int withPromotion(int move, char typeId) {
+    return withoutPromotion(move) | Bitboard.typeIndex(typeId) << PROMOTION_SHIFT;
+  }
+
+  /**
+   * Returns the specified packed move without its promotion.
+   *
+   * @param move the packed move
+   * @return the packed move without the promotion
+   */
+  public static int withoutPromotion(int move) {
+    return move & ~(PROMOTION_MASK << PROMOTION_SHIFT);
+  }
+
+  public static int from(int move) {
+    return move & SQUARE_MASK;
+  }
+
+  public static int to(int move) {
+    return move >>> TO_SHIFT & SQUARE_MASK;
+  }
+
+  public static int flags(int move) {
+    return move >>> FLAGS_SHIFT & FLAGS_MASK;
+  }
+
+  /**
+   * Returns whether the specified packed move has all of the specified flags.
+   *
+   * @param move the packed move
+   * @param flags the flags to check for
+   * @return whether the packed move has the flags
+   */
+  public static boolean is(int move, int flags) {
+    return (flags(move) & flags) == flags;
+  }
+
+  /**
+   * Returns the typeId of the piece the specified packed move promotes into, or 0 if the move is
+   * not a promotion.
+   *
+   * @param move the packed move
+   * @return the typeId of the piece to promote into
+   */
+  public static char promotion(int move) {
+    int typeIndex = move >>> PROMOTION_SHIFT & PROMOTION_MASK;
+    return typeIndex == 0 ? 0 : Bitboard.TYPE_IDS.charAt(typeIndex);
+  }
+
+  /**
+   * Returns the maximum number of moves a single piece can have on the specified board.
+   *
+   * @param board the board
+   * @return the maximum number of moves of a single piece
+   */
+  public static int maxPieceMoves(Board board) {
+    return Math.max(2 * (board.rows() + board.cols()), 16);
+  }
+}
@@ -1,11 +1,11 @@
 package se.lovebrandefelt.chess;
 
 import static se.lovebrandefelt.chess.Color.WHITE;
-import static se.lovebrandefelt.chess.Piece.CaptureRule.CANT_CAPTURE;
-import static se.lovebrandefelt.chess.Piece.CaptureRule.MUST_CAPTURE;
-
-import java.util.HashMap;
-import java.util.Map;
+import static se.lovebrandefelt.chess.PackedMove.CAPTURE;
+import static se.lovebrandefelt.chess.PackedMove.DOUBLE_STEP;
+import static se.lovebrandefelt.chess.PackedMove.EN_PASSANT;
+import static se.lovebrandefelt.chess.PackedMove.PROMOTIONS;
+import static se.lovebrandefelt.chess.PackedMove.QUIET;
 
 public class Pawn extends Piece {
   public Pawn(Color color) {
@@ -13,33 +13,72 @@ public class Pawn extends Piece {
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    addMovesInDirection(new Pos(moveDirection(), 0), legalMoves, Move::new, CANT_CAPTURE, 1);
-    addMovesInDirection(new Pos(moveDirection(), -1), legalMoves, Move::new, MUST_CAPTURE, 1);
-    addMovesInDirection(new Pos(moveDirection(), 1), legalMoves, Move::new, MUST_CAPTURE, 1);
+  public Piece copy() {
+    return withMoveCount(new Pawn(getColor()));
+  }
 
-    if (getBoard().getHistory().stream().noneMatch((move) -> move.getPiece() == this)
-        && getBoard().isEmpty(getPos().offset(new Pos(moveDirection(), 0)))) {
-      addMovesInDirection(new Pos(2 * moveDirection(), 0), legalMoves, Move::new, CANT_CAPTURE, 1);
+  // Works on square indices directly, with the double step decided by the move count of the pawn
+  // and en passant by the target square of the board, so the cost does not depend on the history
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    Board board = getBoard();
+    int direction = moveDirection();
+    int row = getPos().getRow();
+    int col = getPos().getCol();
+    int toRow = row + direction;
+    if (toRow < 0 || toRow >= board.rows()) {
+      return count;
+    }
+    int from = board.index(row, col);
+    int forward = from + direction * board.cols();
+    boolean promotes = toRow + direction < 0 || toRow + direction >= board.rows();
+
+    if (board.isEmpty(forward)) {
+      count = addMoves(moves, count, from, forward, QUIET, promotes);
+    }
+    if (col > 0 && isCapturable(board.get(forward - 1))) {
+      count = addMoves(moves, count, from, forward - 1, CAPTURE, promotes);
+    }
+    if (col < board.cols() - 1 && isCapturable(board.get(forward + 1))) {
+      count = addMoves(moves, count, from, forward + 1, CAPTURE, promotes);
+    }
+    int doubleRow = toRow + direction;
+    if (!hasMoved()
+        && !promotes
+        && board.isEmpty(forward)
+        && board.isEmpty(forward + direction * board.cols())) {
+      boolean doublePromotes = doubleRow + direction < 0 || doubleRow + direction >= board.rows();
+      count =
+          addMoves(
+              moves, count, from, forward + direction * board.cols(), DOUBLE_STEP, doublePromotes);
     }
 
     // Checks for available en passant moves
-    if (!getBoard().getHistory().empty()) {
-      Move lastMove = getBoard().getHistory().peek();
-      if (lastMove.getPiece().getTypeId() == 'P'
-          && lastMove
-              .getFrom()
-              .subtract(lastMove.getTo())
-              .equals(new Pos(2 * moveDirection(), 0))) {
-        Pos difference = lastMove.getTo().subtract(getPos());
-        if (difference.equals(new Pos(0, -1)) || difference.equals(new Pos(0, 1))) {
-          Pos to = getPos().offset(new Pos(moveDirection(), 0)).offset(difference);
-          legalMoves.put(to, new EnPassantMove(getPos(), to));
-        }
-      }
+    int enPassant = board.getEnPassant();
+    if (enPassant >= 0
+        && enPassant / board.cols() == toRow
+        && Math.abs(enPassant % board.cols() - col) == 1) {
+      moves[count++] = PackedMove.of(from, enPassant, EN_PASSANT | CAPTURE);
+    }
+    return count;
+  }
+
+  // Adds the move, or one move per promotion if the move reaches the last row
+  private static int addMoves(
+      int[] moves, int count, int from, int to, int flags, boolean promotes) {
+    int move = PackedMove.of(from, to, flags);
+    if (!promotes) {
+      moves[count++] = move;
+      return count;
     }
-    return legalMoves;
+    for (int i = 0; i < PROMOTIONS.length(); i++) {
+      moves[count++] = PackedMove.withPromotion(move, PROMOTIONS.charAt(i));
+    }
+    return count;
+  }
+
+  private boolean isCapturable(Piece piece) {
+    return piece != null && piece.getColor() != getColor();
   }
 
   /**
@@ -72,20 +111,24 @@ public class Pawn extends Piece {
    * @param typeId the type of the piece to promote into
    */
   public void promoteInto(char typeId) {
+    Piece piece;
     switch (typeId) {
       case 'B':
-        getBoard().add(new Bishop(getColor()), getPos());
+        piece = new Bishop(getColor());
         break;
       case 'N':
-        getBoard().add(new Knight(getColor()), getPos());
+        piece = new Knight(getColor());
         break;
       case 'R':
-        getBoard().add(new Rook(getColor()), getPos());
+        piece = new Rook(getColor());
         break;
       case 'Q':
-        getBoard().add(new Queen(getColor()), getPos());
+        piece = new Queen(getColor());
         break;
       default:
+        return;
     }
+    piece.setMoveCount(getMoveCount());
+    getBoard().add(piece, getPos());
   }
 }
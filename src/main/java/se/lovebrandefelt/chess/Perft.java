@@ -0,0 +1,111 @@
+package se.lovebrandefelt.chess;
+
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Perft {
+  private Game game;
+  private int bufferSize;
+  private int[][] moves;
+
+  /**
+   * Creates a new perft counter for the current position of the specified game.
+   *
+   * @param game the game to count in
+   */
+  public Perft(Game game) {
+    this.game = game;
+    Board board = game.getBoard();
+    int maxPieces =
+        Math.max(board.getPieces().get(WHITE).size(), board.getPieces().get(BLACK).size());
+    this.bufferSize = maxPieces * PackedMove.maxPieceMoves(board);
+    this.moves = new int[0][];
+  }
+
+  /**
+   * Returns the number of leaf nodes of the move tree of the specified depth.
+   *
+   * @param depth the depth of the move tree
+   * @return the number of leaf nodes
+   */
+  public long perft(int depth) {
+    if (depth == 0) {
+      return 1;
+    }
+    ensureDepth(depth);
+    return count(depth);
+  }
+
+  /**
+   * Returns the number of leaf nodes of the move tree of the specified depth below each legal move,
+   * keyed by the move in coordinate notation.
+   *
+   * @param depth the depth of the move tree
+   * @return a map from each legal move to its number of leaf nodes
+   */
+  public Map<String, Long> divide(int depth) {
+    Map<String, Long> nodes = new LinkedHashMap<>();
+    if (depth == 0) {
+      return nodes;
+    }
+    ensureDepth(depth);
+    int[] rootMoves = moves[depth - 1];
+    int count = game.legalMoves(rootMoves);
+    for (int i = 0; i < count; i++) {
+      String uci = Notation.uci(game.getBoard(), rootMoves[i]);
+      game.move(rootMoves[i]);
+      nodes.put(uci, depth == 1 ? 1 : count(depth - 1));
+      game.undoMove();
+    }
+    return nodes;
+  }
+
+  private long count(int depth) {
+    int[] plyMoves = moves[depth - 1];
+    int count = game.legalMoves(plyMoves);
+    if (depth == 1) {
+      return count;
+    }
+    long nodes = 0;
+    for (int i = 0; i < count; i++) {
+      game.move(plyMoves[i]);
+      nodes += count(depth - 1);
+      game.undoMove();
+    }
+    return nodes;
+  }
+
+  private void ensureDepth(int depth) {
+    if (moves.length < depth) {
+      int[][] newMoves = new int[depth][];
+      for (int i = 0; i < depth; i++) {
+        newMoves[i] = i < moves.length ? moves[i] : new int[bufferSize];
+      }
+      moves = newMoves;
+    }
+  }
+
+  /**
+   * Runs perft to the depth given as the first argument, 5 by default, on the position given as
+   * a FEN string in the second argument, the standard setup by default, and prints the number of
+   * nodes and the nodes per second.
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    Board board = args.length > 1 ? Fen.parse(args[1]) : Game.standardSetup();
+    Perft perft = new Perft(new Game(board, board.getSideToMove()));
+    for (int i = 1; i <= depth; i++) {
+      long start = System.nanoTime();
+      long nodes = perft.perft(i);
+      long nanos = Math.max(System.nanoTime() - start, 1);
+      System.out.printf(
+          "perft(%d) = %d in %d ms, %d nodes/s%n",
+          i, nodes, nanos / 1_000_000, nodes * 1_000_000_000 / nanos);
+    }
+  }
+}
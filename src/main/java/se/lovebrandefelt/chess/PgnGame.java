@@ -0,0 +1,56 @@
+package se.lovebrandefelt.chess;
+
+import java.util.Map;
+
+/** A game read by a {@link PgnReader}, with its tags, the replayed moves and its result. */
+public class PgnGame {
+  private final Map<String, String> tags;
+  private final Game game;
+  private final String result;
+  private final String error;
+
+  PgnGame(Map<String, String> tags, Game game, String result, String error) {
+    this.tags = tags;
+    this.game = game;
+    this.result = result;
+    this.error = error;
+  }
+
+  /**
+   * Returns the tags of this game in the order they were read.
+   *
+   * @return the tags of this game
+   */
+  public Map<String, String> getTags() {
+    return tags;
+  }
+
+  /**
+   * Returns the game with every move of the main line made, up to the first move that could not be
+   * read if there is an error.
+   *
+   * @return the replayed game
+   */
+  public Game getGame() {
+    return game;
+  }
+
+  /**
+   * Returns the game termination marker, "1-0", "0-1", "1/2-1/2" or "*".
+   *
+   * @return the result of this game
+   */
+  public String getResult() {
+    return result;
+  }
+
+  /**
+   * Returns a description of why the moves of this game could not all be replayed, or null if they
+   * could.
+   *
+   * @return the error of this game, or null
+   */
+  public String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,285 @@
+package se.lovebrandefelt.chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads games in Portable Game Notation from a channel in fixed size chunks, replays the moves of
+ * each game and hands every game to a callback as soon as its termination marker is read. Tags are
+ * kept, comments, annotation glyphs and variations are skipped, and a game with a FEN tag starts
+ * from that position. Only the current game is held in memory, so files of any size can be read.
+ */
+public class PgnReader {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_TOKEN_LENGTH = 256;
+  private static final int MAX_TAG_LENGTH = 1 << 12;
+
+  private static final int BETWEEN_TOKENS = 0;
+  private static final int IN_TOKEN = 1;
+  private static final int IN_TAG = 2;
+  private static final int IN_BRACE_COMMENT = 3;
+  private static final int IN_LINE_COMMENT = 4;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final char[] token;
+  private final CharBuffer tokenText;
+  private final char[] tagName;
+  private final byte[] tagValue;
+
+  private int state;
+  private boolean lineStart;
+  private int depth;
+  private int tokenLength;
+  private int tagNameLength;
+  private int tagValueLength;
+  private boolean inString;
+  private boolean escaped;
+
+  private Consumer<PgnGame> consumer;
+  private int games;
+  private Map<String, String> tags;
+  private Game game;
+  private Notation notation;
+  private String error;
+
+  /**
+   * Creates a new reader reading from the specified channel.
+   *
+   * @param channel the channel to read from
+   */
+  public PgnReader(ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    token = new char[MAX_TOKEN_LENGTH];
+    tokenText = CharBuffer.wrap(token);
+    tagName = new char[MAX_TOKEN_LENGTH];
+    tagValue = new byte[MAX_TAG_LENGTH];
+  }
+
+  /**
+   * Reads every game in the file at the specified path and hands each one to the specified
+   * consumer.
+   *
+   * @param path the path of the file
+   * @param consumer the consumer of the games
+   * @return the number of games read
+   * @throws IOException if the file can not be read
+   */
+  public static int read(Path path, Consumer<PgnGame> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new PgnReader(channel).read(consumer);
+    }
+  }
+
+  /**
+   * Reads every game until the end of the channel and hands each one to the specified consumer. A
+   * game whose moves can not all be replayed is still handed over, with the moves up to the
+   * offending one made and an error set.
+   *
+   * @param consumer the consumer of the games
+   * @return the number of games read
+   * @throws IOException if the channel can not be read
+   */
+  public int read(Consumer<PgnGame> consumer) throws IOException {
+    this.consumer = consumer;
+    games = 0;
+    state = BETWEEN_TOKENS;
+    lineStart = true;
+    byte[] bytes = buffer.array();
+    while (channel.read(buffer) >= 0) {
+      for (int i = 0; i < buffer.position(); i++) {
+        accept((char) (bytes[i] & 0xFF));
+      }
+      buffer.clear();
+    }
+    if (state == IN_TOKEN) {
+      endToken();
+    }
+    if (tags != null || game != null) {
+      endGame("*");
+    }
+    return games;
+  }
+
+  private void accept(char c) {
+    switch (state) {
+      case IN_BRACE_COMMENT:
+        if (c == '}') {
+          state = BETWEEN_TOKENS;
+        }
+        break;
+      case IN_LINE_COMMENT:
+        if (c == '\n') {
+          state = BETWEEN_TOKENS;
+        }
+        break;
+      case IN_TAG:
+        acceptTag(c);
+        break;
+      default:
+        if (isTokenChar(c)) {
+          if (tokenLength < MAX_TOKEN_LENGTH) {
+            token[tokenLength++] = c;
+          }
+          state = IN_TOKEN;
+          break;
+        }
+        if (state == IN_TOKEN) {
+          endToken();
+        }
+        state = BETWEEN_TOKENS;
+        if (c == '{') {
+          state = IN_BRACE_COMMENT;
+        } else if (c == ';' || c == '%' && lineStart) {
+          state = IN_LINE_COMMENT;
+        } else if (c == '(') {
+          depth++;
+        } else if (c == ')' && depth > 0) {
+          depth--;
+        } else if (c == '[' && depth == 0) {
+          startTag();
+        }
+    }
+    lineStart = c == '\n';
+  }
+
+  private void startTag() {
+    if (game != null) {
+      endGame("*");
+    }
+    tagNameLength = 0;
+    tagValueLength = 0;
+    inString = false;
+    escaped = false;
+    state = IN_TAG;
+  }
+
+  private void acceptTag(char c) {
+    if (inString) {
+      if (escaped || c != '\\' && c != '"') {
+        if (tagValueLength < MAX_TAG_LENGTH) {
+          tagValue[tagValueLength++] = (byte) c;
+        }
+        escaped = false;
+      } else if (c == '\\') {
+        escaped = true;
+      } else {
+        inString = false;
+      }
+    } else if (c == '"') {
+      inString = true;
+    } else if (c == ']') {
+      if (tags == null) {
+        tags = new LinkedHashMap<>();
+      }
+      tags.put(
+          new String(tagName, 0, tagNameLength),
+          new String(tagValue, 0, tagValueLength, StandardCharsets.UTF_8));
+      state = BETWEEN_TOKENS;
+    } else if (isTokenChar(c) && tagNameLength < MAX_TOKEN_LENGTH) {
+      tagName[tagNameLength++] = c;
+    }
+  }
+
+  private void endToken() {
+    int length = tokenLength;
+    tokenLength = 0;
+    if (depth > 0 || token[0] == '$' || isMoveNumber(length)) {
+      return;
+    }
+    if (tokenIs("1-0", length)
+        || tokenIs("0-1", length)
+        || tokenIs("1/2-1/2", length)
+        || tokenIs("*", length)) {
+      endGame(new String(token, 0, length));
+      return;
+    }
+    if (game == null) {
+      startGame();
+    }
+    if (error != null) {
+      return;
+    }
+    try {
+      game.move(notation.parse(tokenText, 0, length));
+    } catch (IllegalMoveException e) {
+      error = e.getMessage() + " at ply " + (game.getBoard().getHistory().size() + 1);
+    }
+  }
+
+  private void startGame() {
+    String fen = tags == null ? null : tags.get("FEN");
+    Board board = Game.standardSetup();
+    if (fen != null) {
+      try {
+        board = Fen.parse(fen);
+      } catch (IllegalArgumentException e) {
+        error = e.getMessage();
+      }
+    }
+    game = new Game(board, board.getSideToMove());
+    notation = new Notation(game);
+  }
+
+  private void endGame(String result) {
+    if (game == null) {
+      startGame();
+    }
+    Map<String, String> gameTags = tags == null ? new LinkedHashMap<>() : tags;
+    consumer.accept(new PgnGame(gameTags, game, result, error));
+    games++;
+    tags = null;
+    game = null;
+    notation = null;
+    error = null;
+    depth = 0;
+  }
+
+  private boolean isMoveNumber(int length) {
+    for (int i = 0; i < length; i++) {
+      if (token[i] < '0' || token[i] > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean tokenIs(String string, int length) {
+    if (length != string.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (token[i] != string.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isTokenChar(char c) {
+    return c >= 'a' && c <= 'z'
+        || c >= 'A' && c <= 'Z'
+        || c >= '0' && c <= '9'
+        || c == '-'
+        || c == '+'
+        || c == '#'
+        || c == '='
+        || c == '/'
+        || c == '*'
+        || c == '!'
+        || c == '?'
+        || c == ':'
+        || c == '$'
+        || c == '_';
+  }
+}
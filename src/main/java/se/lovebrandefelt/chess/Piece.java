@@ -1,15 +1,18 @@
 package se.lovebrandefelt.chess;
 
+import static se.lovebrandefelt.chess.PackedMove.CAPTURE;
+import static se.lovebrandefelt.chess.PackedMove.QUIET;
 import static se.lovebrandefelt.chess.Piece.CaptureRule.CAN_CAPTURE;
 
+import java.util.HashMap;
 import java.util.Map;
-import java.util.function.BiFunction;
 
 public abstract class Piece {
   private final char typeId;
   private Board board;
   private Pos pos;
   private Color color;
+  private int moveCount;
 
   /**
    * Creates a new piece with the specified color and the specified typeId.
@@ -22,56 +25,112 @@ public abstract class Piece {
     this.pos = null;
     this.color = color;
     this.typeId = typeId;
+    this.moveCount = 0;
   }
 
   /**
-   * Adds a number of moves in the specified direction to the specified map where each key is a
-   * position a piece can move to and each value a corresponding Move object.
+   * Adds a number of packed moves in the specified direction to the specified array, starting at
+   * the specified count.
    *
-   * @param direction the direction to move in
-   * @param legalMoves the map of legal moves
-   * @param moveSupplier the constructor for creating the moves
+   * @param rowStep the number of rows to move in each step
+   * @param colStep the number of columns to move in each step
+   * @param moves the array of packed moves
+   * @param count the number of moves already in the array
+   * @param flags the flags to add to the moves
    * @param captureRule the capture rule to use
    * @param maxMoves the maximum number of moves to add
+   * @return the number of moves in the array after adding
    */
-  protected void addMovesInDirection(
-      Pos direction,
-      Map<Pos, Move> legalMoves,
-      BiFunction<Pos, Pos, Move> moveSupplier,
+  protected int addMovesInDirection(
+      int rowStep,
+      int colStep,
+      int[] moves,
+      int count,
+      int flags,
       CaptureRule captureRule,
       int maxMoves) {
-    captureRule.perform(direction, legalMoves, moveSupplier, maxMoves, this);
+    return captureRule.perform(rowStep, colStep, moves, count, flags, maxMoves, this);
   }
 
   /**
-   * Adds as many moves as possible in the specified direction to the specified map where each key
-   * is a position a piece can move to and each value a corresponding Move object.
+   * Adds as many packed moves as possible in the specified direction to the specified array,
+   * starting at the specified count.
    *
-   * @param direction the direction to move in
-   * @param legalMoves the map of legal moves
+   * @param direction the direction to move in, as a row step and a column step
+   * @param moves the array of packed moves
+   * @param count the number of moves already in the array
+   * @return the number of moves in the array after adding
    */
-  protected void addMovesInDirection(Pos direction, Map<Pos, Move> legalMoves) {
-    CAN_CAPTURE.perform(direction, legalMoves, Move::new, -1, this);
+  protected int addMovesInDirection(int[] direction, int[] moves, int count) {
+    return CAN_CAPTURE.perform(direction[0], direction[1], moves, count, QUIET, -1, this);
   }
 
   /**
-   * Adds one move in the specified direction to the specified map where each key is a position a
-   * piece can move to and each value a corresponding Move object.
+   * Adds one packed move in the specified direction to the specified array, starting at the
+   * specified count.
    *
-   * @param direction the direction to move in
-   * @param legalMoves the map of legal moves
+   * @param direction the direction to move in, as a row step and a column step
+   * @param moves the array of packed moves
+   * @param count the number of moves already in the array
+   * @return the number of moves in the array after adding
    */
-  protected void addMoveInDirection(Pos direction, Map<Pos, Move> legalMoves) {
-    CAN_CAPTURE.perform(direction, legalMoves, Move::new, 1, this);
+  protected int addMoveInDirection(int[] direction, int[] moves, int count) {
+    return CAN_CAPTURE.perform(direction[0], direction[1], moves, count, QUIET, 1, this);
+  }
+
+  /**
+   * Writes the moves of this piece as packed moves into the specified array, starting at the
+   * specified count. The array must have room for {@link PackedMove#maxPieceMoves(Board)} more
+   * moves.
+   *
+   * @param moves the array of packed moves
+   * @param count the number of moves already in the array
+   * @return the number of moves in the array after adding
+   */
+  public abstract int generateMoves(int[] moves, int count);
+
+  /**
+   * Returns a new piece of the same type and color as this piece with the same move count, not
+   * placed on any board.
+   *
+   * @return a copy of this piece
+   */
+  public abstract Piece copy();
+
+  /**
+   * Gives the specified piece the move count of this piece and returns it.
+   *
+   * @param piece the piece to give the move count
+   * @return the specified piece
+   */
+  protected Piece withMoveCount(Piece piece) {
+    piece.moveCount = moveCount;
+    return piece;
+  }
+
+  /**
+   * A recursion safe version of generate moves to use when checking whether a position is
+   * threatened.
+   *
+   * @param moves the array of packed moves
+   * @param count the number of moves already in the array
+   * @return the number of moves in the array after adding
+   */
+  public int generateRecursionSafeMoves(int[] moves, int count) {
+    return generateMoves(moves, count);
   }
 
   /**
    * Returns a map where each key is a position this piece can move to and each value a
-   * corresponding Move object.
+   * corresponding Move object. Promotions are returned as plain moves, the pawn is promoted after
+   * the move has been made.
    *
    * @return a map of legal moves
    */
-  public abstract Map<Pos, Move> legalMoves();
+  public Map<Pos, Move> legalMoves() {
+    int[] moves = new int[PackedMove.maxPieceMoves(board)];
+    return toMoveMap(moves, generateMoves(moves, 0));
+  }
 
   /**
    * A recursion safe version of legal moves to use when checking whether a position is threatened.
@@ -79,7 +138,18 @@ public abstract class Piece {
    * @return a map of legal moves
    */
   public Map<Pos, Move> recursionSafeLegalMoves() {
-    return legalMoves();
+    int[] moves = new int[PackedMove.maxPieceMoves(board)];
+    return toMoveMap(moves, generateRecursionSafeMoves(moves, 0));
+  }
+
+  private Map<Pos, Move> toMoveMap(int[] moves, int count) {
+    Map<Pos, Move> legalMoves = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      legalMoves.put(
+          board.pos(PackedMove.to(moves[i])),
+          board.toMove(PackedMove.withoutPromotion(moves[i])));
+    }
+    return legalMoves;
   }
 
   /**
@@ -112,6 +182,23 @@ public abstract class Piece {
     this.pos = pos;
   }
 
+  /**
+   * Returns whether this piece has moved since it was added to the board.
+   *
+   * @return whether this piece has moved
+   */
+  public boolean hasMoved() {
+    return moveCount > 0;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  public void setMoveCount(int moveCount) {
+    this.moveCount = moveCount;
+  }
+
   public Color getColor() {
     return color;
   }
@@ -123,100 +210,80 @@ public abstract class Piece {
   public enum CaptureRule {
     CAN_CAPTURE {
       @Override
-      public void perform(
-          Pos direction,
-          Map<Pos, Move> legalMoves,
-          BiFunction<Pos, Pos, Move> moveSupplier,
-          int maxMoves,
-          Piece piece) {
-        Pos to = piece.pos.offset(direction);
-        if (maxMoves < 0) {
-          while (piece.board.isInsideBounds(to)) {
-            if (!piece.board.isEmpty(to)) {
-              if (piece.isEnemy(to)) {
-                legalMoves.put(to, moveSupplier.apply(piece.pos, to));
-              }
-              break;
+      public int perform(
+          int rowStep, int colStep, int[] moves, int count, int flags, int maxMoves, Piece piece) {
+        Board board = piece.board;
+        int from = board.index(piece.pos);
+        int row = piece.pos.getRow() + rowStep;
+        int col = piece.pos.getCol() + colStep;
+        for (int i = 0; (maxMoves < 0 || i < maxMoves) && board.isInsideBounds(row, col); i++) {
+          int to = board.index(row, col);
+          Piece target = board.get(to);
+          if (target != null) {
+            if (target.color != piece.color) {
+              moves[count++] = PackedMove.of(from, to, flags | CAPTURE);
             }
-            legalMoves.put(to, moveSupplier.apply(piece.pos, to));
-            to = to.offset(direction);
-          }
-        } else {
-          for (int i = 0; i < maxMoves && piece.board.isInsideBounds(to); i++) {
-            if (!piece.board.isEmpty(to)) {
-              if (piece.isEnemy(to)) {
-                legalMoves.put(to, moveSupplier.apply(piece.pos, to));
-              }
-              break;
-            }
-            legalMoves.put(to, moveSupplier.apply(piece.pos, to));
-            to = to.offset(direction);
+            break;
           }
+          moves[count++] = PackedMove.of(from, to, flags);
+          row += rowStep;
+          col += colStep;
         }
+        return count;
       }
     },
     CANT_CAPTURE {
       @Override
-      public void perform(
-          Pos direction,
-          Map<Pos, Move> legalMoves,
-          BiFunction<Pos, Pos, Move> moveSupplier,
-          int maxMoves,
-          Piece piece) {
-        Pos to = piece.pos.offset(direction);
-        if (maxMoves < 0) {
-          while (piece.board.isInsideBounds(to) && piece.board.isEmpty(to)) {
-            legalMoves.put(to, moveSupplier.apply(piece.pos, to));
-            to = to.offset(direction);
-          }
-        } else {
-          for (int i = 0;
-              i < maxMoves && piece.board.isInsideBounds(to) && piece.board.isEmpty(to);
-              i++) {
-            legalMoves.put(to, moveSupplier.apply(piece.pos, to));
-            to = to.offset(direction);
-          }
+      public int perform(
+          int rowStep, int colStep, int[] moves, int count, int flags, int maxMoves, Piece piece) {
+        Board board = piece.board;
+        int from = board.index(piece.pos);
+        int row = piece.pos.getRow() + rowStep;
+        int col = piece.pos.getCol() + colStep;
+        for (int i = 0;
+            (maxMoves < 0 || i < maxMoves)
+                && board.isInsideBounds(row, col)
+                && board.isEmpty(board.index(row, col));
+            i++) {
+          moves[count++] = PackedMove.of(from, board.index(row, col), flags);
+          row += rowStep;
+          col += colStep;
         }
+        return count;
       }
     },
     MUST_CAPTURE {
       @Override
-      public void perform(
-          Pos direction,
-          Map<Pos, Move> legalMoves,
-          BiFunction<Pos, Pos, Move> moveSupplier,
-          int maxMoves,
-          Piece piece) {
-        Pos to = piece.pos.offset(direction);
-        if (maxMoves < 0) {
-          if (piece.board.isInsideBounds(to) && !piece.board.isEmpty(to) && piece.isEnemy(to)) {
-            legalMoves.put(to, moveSupplier.apply(piece.pos, to));
+      public int perform(
+          int rowStep, int colStep, int[] moves, int count, int flags, int maxMoves, Piece piece) {
+        Board board = piece.board;
+        int row = piece.pos.getRow() + rowStep;
+        int col = piece.pos.getCol() + colStep;
+        if (maxMoves != 0 && board.isInsideBounds(row, col)) {
+          Piece target = board.get(board.index(row, col));
+          if (target != null && target.color != piece.color) {
+            moves[count++] =
+                PackedMove.of(board.index(piece.pos), board.index(row, col), flags | CAPTURE);
           }
-        } else if (maxMoves > 0
-            && piece.board.isInsideBounds(to)
-            && !piece.board.isEmpty(to)
-            && piece.isEnemy(to)) {
-          legalMoves.put(to, moveSupplier.apply(piece.pos, to));
         }
+        return count;
       }
     };
 
     /**
-     * Adds a number of moves in the specified direction according to this capture rule to the
-     * specified map where each key is a position a piece can move to and each value a corresponding
-     * Move object.
+     * Adds a number of packed moves in the specified direction according to this capture rule to
+     * the specified array, starting at the specified count.
      *
-     * @param direction the direction to move in
-     * @param legalMoves the map of legal moves
-     * @param moveSupplier the constructor for creating the moves
+     * @param rowStep the number of rows to move in each step
+     * @param colStep the number of columns to move in each step
+     * @param moves the array of packed moves
+     * @param count the number of moves already in the array
+     * @param flags the flags to add to the moves
      * @param maxMoves the maximum number of moves to add
      * @param piece the piece to add moves for
+     * @return the number of moves in the array after adding
      */
-    public abstract void perform(
-        Pos direction,
-        Map<Pos, Move> legalMoves,
-        BiFunction<Pos, Pos, Move> moveSupplier,
-        int maxMoves,
-        Piece piece);
+    public abstract int perform(
+        int rowStep, int colStep, int[] moves, int count, int flags, int maxMoves, Piece piece);
   }
 }
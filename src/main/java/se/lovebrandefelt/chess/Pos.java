@@ -1,14 +1,46 @@
 package se.lovebrandefelt.chess;
 
 public class Pos {
-  private int row;
-  private int col;
+  private static final int CACHE_MIN = -8;
+  private static final int CACHE_MAX = 32;
+  private static final Pos[] CACHE = new Pos[(CACHE_MAX - CACHE_MIN) * (CACHE_MAX - CACHE_MIN)];
+
+  static {
+    for (int row = CACHE_MIN; row < CACHE_MAX; row++) {
+      for (int col = CACHE_MIN; col < CACHE_MAX; col++) {
+        CACHE[cacheIndex(row, col)] = new Pos(row, col);
+      }
+    }
+  }
+
+  private final int row;
+  private final int col;
 
   public Pos(int row, int col) {
     this.row = row;
     this.col = col;
   }
 
+  /**
+   * Returns a position with the specified row and column. Positions on boards of up to 32 rows and
+   * columns, and offsets of up to 8 squares in any direction, are shared instances, so calling this
+   * in a loop does not allocate.
+   *
+   * @param row the row
+   * @param col the column
+   * @return a position with the specified row and column
+   */
+  public static Pos of(int row, int col) {
+    if (row >= CACHE_MIN && row < CACHE_MAX && col >= CACHE_MIN && col < CACHE_MAX) {
+      return CACHE[cacheIndex(row, col)];
+    }
+    return new Pos(row, col);
+  }
+
+  private static int cacheIndex(int row, int col) {
+    return (row - CACHE_MIN) * (CACHE_MAX - CACHE_MIN) + col - CACHE_MIN;
+  }
+
   /**
    * Creates a new pos from the specified string written in chess notation.
    *
@@ -18,15 +50,12 @@ public class Pos {
     if (posString.matches("[a-zA-Z]+[0-9]+")) {
       String rowString = posString.replaceFirst("[a-zA-Z]+", "");
       String colString = posString.replaceFirst("[0-9]+", "").toUpperCase();
+      int col = 0;
+      for (int i = 0; i < colString.length(); i++) {
+        col = col * 26 + colString.charAt(i) - 64;
+      }
       this.row = Integer.parseInt(rowString) - 1;
-      this.col = 0;
-      colString
-          .chars()
-          .forEach(
-              (c) -> {
-                col = col * 26 + c - 64;
-              });
-      col -= 1;
+      this.col = col - 1;
       return;
     }
     throw new IllegalArgumentException();
@@ -65,7 +94,7 @@ public class Pos {
    * @return a position created by offsetting this position by the specified amount
    */
   public Pos offset(Pos offset) {
-    return new Pos(this.row + offset.row, this.col + offset.col);
+    return of(this.row + offset.row, this.col + offset.col);
   }
 
   /**
@@ -75,7 +104,7 @@ public class Pos {
    * @return the direction between this position and the specified position
    */
   public Pos subtract(Pos other) {
-    return new Pos(this.row - other.row, this.col - other.col);
+    return of(this.row - other.row, this.col - other.col);
   }
 
   public int getRow() {
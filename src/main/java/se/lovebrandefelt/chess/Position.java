@@ -0,0 +1,327 @@
+package se.lovebrandefelt.chess;
+
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+
+/**
+ * An immutable position of a board with at most 64 squares: the piece placement, the side to move,
+ * the castling rights and the en passant square. The pieces are packed four bits per square into
+ * four longs, so positions are cheap to compare and hash and can be shared between threads and
+ * used as map keys.
+ *
+ * <p>Like FEN, a position does not record how many times each piece has moved. When a position is
+ * loaded, kings and rooks have moved unless they hold a castling right, and pawns have moved unless
+ * they stand on the second row from their own side.
+ */
+public final class Position {
+  /** The length of the array returned by {@link #toByteArray()}. */
+  public static final int BYTES = 44;
+
+  private static final int MAX_SQUARES = 64;
+  private static final int SILVERMAN_KING = 7;
+  private static final int BLACK_BIT = 8;
+
+  private final int rows;
+  private final int cols;
+  private final long squares0;
+  private final long squares1;
+  private final long squares2;
+  private final long squares3;
+  private final Color sideToMove;
+  private final long castlingRights;
+  private final int enPassant;
+  private final long key;
+
+  private Position(
+      int rows, int cols, long[] squares, Color sideToMove, long castlingRights, int enPassant) {
+    this.rows = rows;
+    this.cols = cols;
+    squares0 = squares[0];
+    squares1 = squares[1];
+    squares2 = squares[2];
+    squares3 = squares[3];
+    this.sideToMove = sideToMove;
+    this.castlingRights = castlingRights;
+    this.enPassant = enPassant;
+    key = computeKey();
+  }
+
+  /**
+   * Returns the position of the specified board.
+   *
+   * @param board the board
+   * @return the position of the board
+   * @throws IllegalArgumentException if the board has more than 64 squares or holds a piece of a
+   *     type a position can not represent
+   */
+  public static Position of(Board board) {
+    if (board.rows() * board.cols() > MAX_SQUARES) {
+      throw new IllegalArgumentException("Boards with more than 64 squares are not supported");
+    }
+    long[] squares = new long[4];
+    for (int square = 0; square < board.rows() * board.cols(); square++) {
+      Piece piece = board.get(square);
+      if (piece != null) {
+        squares[square >>> 4] |= (long) code(piece) << 4 * (square & 15);
+      }
+    }
+    return new Position(
+        board.rows(),
+        board.cols(),
+        squares,
+        board.getSideToMove(),
+        board.getCastlingRights(),
+        board.getEnPassant());
+  }
+
+  /**
+   * Returns the position stored in the specified array, as written by {@link #toByteArray()}.
+   *
+   * @param bytes the array
+   * @return the position stored in the array
+   * @throws IllegalArgumentException if the array does not hold a valid position
+   */
+  public static Position fromByteArray(byte[] bytes) {
+    if (bytes.length != BYTES) {
+      throw new IllegalArgumentException("Expected " + BYTES + " bytes, got " + bytes.length);
+    }
+    int rows = bytes[0];
+    int cols = bytes[1];
+    if (rows <= 0 || cols <= 0 || rows * cols > MAX_SQUARES || (bytes[2] & ~1) != 0) {
+      throw new IllegalArgumentException("Invalid position header");
+    }
+    int enPassant = bytes[3] - 1;
+    if (enPassant < -1 || enPassant >= rows * cols) {
+      throw new IllegalArgumentException("Invalid en passant square " + enPassant);
+    }
+    long castlingRights = 0;
+    for (int i = 0; i < 8; i++) {
+      castlingRights |= (bytes[4 + i] & 0xFFL) << 8 * i;
+    }
+    long[] squares = new long[4];
+    for (int i = 0; i < 32; i++) {
+      squares[i >>> 3] |= (bytes[12 + i] & 0xFFL) << 8 * (i & 7);
+    }
+    for (int square = 0; square < MAX_SQUARES; square++) {
+      int code = (int) (squares[square >>> 4] >>> 4 * (square & 15)) & 15;
+      if (code == BLACK_BIT || (code != 0 && square >= rows * cols)) {
+        throw new IllegalArgumentException("Invalid piece code at square " + square);
+      }
+    }
+    return new Position(
+        rows, cols, squares, bytes[2] == 0 ? WHITE : BLACK, castlingRights, enPassant);
+  }
+
+  /**
+   * Returns this position as an array of {@link #BYTES} bytes, which {@link #fromByteArray(byte[])}
+   * reads back. The array holds the number of rows and columns, the side to move, the en passant
+   * square plus one, the castling rights in little endian order and the packed squares.
+   *
+   * @return this position as an array of bytes
+   */
+  public byte[] toByteArray() {
+    byte[] bytes = new byte[BYTES];
+    bytes[0] = (byte) rows;
+    bytes[1] = (byte) cols;
+    bytes[2] = (byte) sideToMove.ordinal();
+    bytes[3] = (byte) (enPassant + 1);
+    for (int i = 0; i < 8; i++) {
+      bytes[4 + i] = (byte) (castlingRights >>> 8 * i);
+    }
+    for (int i = 0; i < 32; i++) {
+      bytes[12 + i] = (byte) (squares(i >>> 3) >>> 8 * (i & 7));
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns a new board in this position, with no history.
+   *
+   * @return a new board in this position
+   */
+  public Board toBoard() {
+    Board board = new Board(rows, cols);
+    for (int square = 0; square < rows * cols; square++) {
+      int code = code(square);
+      if (code != 0) {
+        int row = square / cols;
+        Piece piece = piece(code);
+        char typeId = piece.getTypeId();
+        if (typeId == 'P') {
+          if (row != (piece.getColor() == WHITE ? 1 : rows - 2)) {
+            piece.setMoveCount(1);
+          }
+        } else if ((typeId == 'K' || typeId == 'R') && (castlingRights >>> square & 1) == 0) {
+          piece.setMoveCount(1);
+        }
+        board.add(piece, board.pos(square));
+      }
+    }
+    board.setSideToMove(sideToMove);
+    board.setEnPassant(enPassant);
+    return board;
+  }
+
+  /**
+   * Returns the piece at the specified square as a new piece, or null if the square is empty.
+   *
+   * @param square the square index
+   * @return a new piece like the one at the square, or null if the square is empty
+   */
+  public Piece get(int square) {
+    int code = code(square);
+    return code == 0 ? null : piece(code);
+  }
+
+  public int rows() {
+    return rows;
+  }
+
+  public int cols() {
+    return cols;
+  }
+
+  public Color getSideToMove() {
+    return sideToMove;
+  }
+
+  public long getCastlingRights() {
+    return castlingRights;
+  }
+
+  public int getEnPassant() {
+    return enPassant;
+  }
+
+  /**
+   * Returns the Zobrist key of this position, which is the key a board in this position has.
+   *
+   * @return the key of this position
+   */
+  public long getKey() {
+    return key;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof Position)) {
+      return false;
+    }
+    Position position = (Position) other;
+    return key == position.key
+        && squares0 == position.squares0
+        && squares1 == position.squares1
+        && squares2 == position.squares2
+        && squares3 == position.squares3
+        && rows == position.rows
+        && cols == position.cols
+        && sideToMove == position.sideToMove
+        && castlingRights == position.castlingRights
+        && enPassant == position.enPassant;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (key ^ key >>> 32);
+  }
+
+  private long squares(int index) {
+    switch (index) {
+      case 0:
+        return squares0;
+      case 1:
+        return squares1;
+      case 2:
+        return squares2;
+      default:
+        return squares3;
+    }
+  }
+
+  private int code(int square) {
+    return (int) (squares(square >>> 4) >>> 4 * (square & 15)) & 15;
+  }
+
+  private long computeKey() {
+    long key = 0;
+    for (int square = 0; square < rows * cols; square++) {
+      int code = code(square);
+      if (code != 0) {
+        key ^= Zobrist.piece(color(code), typeId(code), square);
+      }
+    }
+    for (long rights = castlingRights; rights != 0; rights &= rights - 1) {
+      key ^= Zobrist.castling(Long.numberOfTrailingZeros(rights));
+    }
+    if (enPassant >= 0) {
+      key ^= Zobrist.enPassant(enPassant % cols);
+    }
+    if (sideToMove == BLACK) {
+      key ^= Zobrist.BLACK_TO_MOVE;
+    }
+    return key;
+  }
+
+  // The low three bits hold the type index plus one, or 7 for a Silverman king
+  private static int code(Piece piece) {
+    int type;
+    if (piece instanceof SilvermanKing) {
+      type = SILVERMAN_KING;
+    } else {
+      type = Bitboard.typeIndex(piece.getTypeId()) + 1;
+      if (type == 0 || piece.getClass() != pieceClass(piece.getTypeId())) {
+        throw new IllegalArgumentException("Unsupported piece " + piece.getClass().getName());
+      }
+    }
+    return piece.getColor() == BLACK ? type | BLACK_BIT : type;
+  }
+
+  private static Class<?> pieceClass(char typeId) {
+    switch (typeId) {
+      case 'P':
+        return Pawn.class;
+      case 'N':
+        return Knight.class;
+      case 'B':
+        return Bishop.class;
+      case 'R':
+        return Rook.class;
+      case 'Q':
+        return Queen.class;
+      default:
+        return King.class;
+    }
+  }
+
+  private static Color color(int code) {
+    return (code & BLACK_BIT) != 0 ? BLACK : WHITE;
+  }
+
+  private static char typeId(int code) {
+    int type = code & 7;
+    return type == SILVERMAN_KING ? 'K' : Bitboard.TYPE_IDS.charAt(type - 1);
+  }
+
+  private static Piece piece(int code) {
+    Color color = color(code);
+    switch (code & 7) {
+      case 1:
+        return new Pawn(color);
+      case 2:
+        return new Knight(color);
+      case 3:
+        return new Bishop(color);
+      case 4:
+        return new Rook(color);
+      case 5:
+        return new Queen(color);
+      case 6:
+        return new King(color);
+      default:
+        return new SilvermanKing(color);
+    }
+  }
+}
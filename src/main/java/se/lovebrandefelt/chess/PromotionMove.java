@@ -0,0 +1,20 @@
+package se.lovebrandefelt.chess;
+
+public class PromotionMove extends Move {
+  private char typeId;
+
+  PromotionMove(Pos from, Pos to, char typeId) {
+    super(from, to);
+    this.typeId = typeId;
+  }
+
+  @Override
+  protected void perform(Board board) {
+    super.perform(board);
+    ((Pawn) getPiece()).promoteInto(typeId);
+  }
+
+  public char getTypeId() {
+    return typeId;
+  }
+}
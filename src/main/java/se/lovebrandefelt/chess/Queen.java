@@ -1,24 +1,24 @@
 package se.lovebrandefelt.chess;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class Queen extends Piece {
+  private static final int[][] DIRECTIONS = {
+    {-1, -1}, {-1, 1}, {1, -1}, {1, 1}, {-1, 0}, {1, 0}, {0, -1}, {0, 1}
+  };
+
   public Queen(Color color) {
     super(color, 'Q');
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    addMovesInDirection(new Pos(-1, -1), legalMoves);
-    addMovesInDirection(new Pos(-1, 1), legalMoves);
-    addMovesInDirection(new Pos(1, -1), legalMoves);
-    addMovesInDirection(new Pos(1, 1), legalMoves);
-    addMovesInDirection(new Pos(-1, 0), legalMoves);
-    addMovesInDirection(new Pos(1, 0), legalMoves);
-    addMovesInDirection(new Pos(0, -1), legalMoves);
-    addMovesInDirection(new Pos(0, 1), legalMoves);
-    return legalMoves;
+  public Piece copy() {
+    return withMoveCount(new Queen(getColor()));
+  }
+
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    for (int[] direction : DIRECTIONS) {
+      count = addMovesInDirection(direction, moves, count);
+    }
+    return count;
   }
 }
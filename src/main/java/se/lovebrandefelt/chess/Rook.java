@@ -1,20 +1,22 @@
 package se.lovebrandefelt.chess;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class Rook extends Piece {
+  static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
   public Rook(Color color) {
     super(color, 'R');
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    Map<Pos, Move> legalMoves = new HashMap<>();
-    addMovesInDirection(new Pos(-1, 0), legalMoves);
-    addMovesInDirection(new Pos(1, 0), legalMoves);
-    addMovesInDirection(new Pos(0, -1), legalMoves);
-    addMovesInDirection(new Pos(0, 1), legalMoves);
-    return legalMoves;
+  public Piece copy() {
+    return withMoveCount(new Rook(getColor()));
+  }
+
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    for (int[] direction : DIRECTIONS) {
+      count = addMovesInDirection(direction, moves, count);
+    }
+    return count;
   }
 }
@@ -0,0 +1,581 @@
+package se.lovebrandefelt.chess;
+
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.PackedMove.CAPTURE;
+import static se.lovebrandefelt.chess.PackedMove.EN_PASSANT;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import se.lovebrandefelt.chess.TranspositionTable.Bound;
+
+/**
+ * A negamax alpha-beta search with iterative deepening, aspiration windows and a quiescence search
+ * of captures and promotions. Moves are tried in the order of the transposition table move,
+ * captures by most valuable victim and least valuable attacker, killer moves and the history
+ * heuristic.
+ *
+ * <p>A search can run on several threads with Lazy SMP. Each extra thread searches a private copy
+ * of the board with its own move ordering state, and every other extra thread searches one ply
+ * deeper than the main thread. The threads only share the transposition table, so their results
+ * speed up each other's searches. The best move is the one found by the main thread. A search
+ * object runs one search at a time, but different searches can share a transposition table.
+ */
+public class Search {
+  /** The score of being checkmated, less the number of plies to the checkmate. */
+  public static final int MATE = 30000;
+
+  /** The maximum depth of a search in plies, including the quiescence search. */
+  public static final int MAX_PLY = 100;
+
+  private static final int INFINITY = 32000;
+  private static final int ASPIRATION_WINDOW = 50;
+  private static final int ASPIRATION_DEPTH = 4;
+  private static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+  private static final int UNTRACKED_VALUE = 300;
+
+  private static final int TABLE_MOVE_SCORE = 1 << 30;
+  private static final int CAPTURE_SCORE = 1 << 28;
+  private static final int KILLER_SCORE = 1 << 26;
+  private static final int HISTORY_LIMIT = 1 << 24;
+
+  private final TranspositionTable table;
+  private final int threads;
+  private final AtomicLong searchedNodes;
+  private volatile boolean stopped;
+  private Listener listener;
+  private long maxNodes;
+  private long startTime;
+  private long maxNanos;
+  private long nodes;
+  private int score;
+  private int depth;
+
+  /** Creates a new single threaded search with its own 16 megabyte transposition table. */
+  public Search() {
+    this(new TranspositionTable(16));
+  }
+
+  /**
+   * Creates a new single threaded search using the specified transposition table.
+   *
+   * @param table the transposition table to use
+   */
+  public Search(TranspositionTable table) {
+    this(table, 1);
+  }
+
+  /**
+   * Creates a new search using the specified transposition table and number of threads.
+   *
+   * @param table the transposition table to use
+   * @param threads the number of threads to search with
+   */
+  public Search(TranspositionTable table, int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException();
+    }
+    this.table = table;
+    this.threads = threads;
+    this.searchedNodes = new AtomicLong();
+  }
+
+  /**
+   * Searches the current position of the specified game within the specified limits and returns
+   * the best move found, as a packed move, or 0 if the current player has no legal moves. The game
+   * is left in the position it was in.
+   *
+   * @param game the game to search
+   * @param limits the limits of the search
+   * @return the best move found as a packed move
+   */
+  public int bestMove(Game game, SearchLimits limits) {
+    searchedNodes.set(0);
+    stopped = false;
+    maxNodes = limits.getNodes();
+    startTime = System.nanoTime();
+    maxNanos =
+        limits.getMillis() >= Long.MAX_VALUE / 1_000_000
+            ? Long.MAX_VALUE
+            : limits.getMillis() * 1_000_000;
+    int maxDepth = Math.min(limits.getDepth(), MAX_PLY - 1);
+    table.newSearch();
+
+    // The copies searched by extra threads have no history, so every worker is given the keys of
+    // the game since its last irreversible move to find repetitions of positions before the root
+    Board board = game.getBoard();
+    long[] gameKeys = new long[board.getHistory().size() - board.getIrreversiblePly()];
+    for (int i = 0; i < gameKeys.length; i++) {
+      gameKeys[i] = board.getKey(board.getIrreversiblePly() + i);
+    }
+    Worker[] workers = new Worker[threads];
+    workers[0] = new Worker(game, 0, gameKeys);
+    for (int i = 1; i < threads; i++) {
+      Board copy = board.copy();
+      workers[i] = new Worker(new Game(copy, copy.getSideToMove()), i, gameKeys);
+    }
+    Thread[] helpers = new Thread[threads - 1];
+    for (int i = 0; i < helpers.length; i++) {
+      Worker worker = workers[i + 1];
+      helpers[i] = new Thread(() -> worker.iterate(maxDepth), "search-" + (i + 1));
+      helpers[i].setDaemon(true);
+      helpers[i].start();
+    }
+    int bestMove = workers[0].iterate(maxDepth);
+    stopped = true;
+    for (Thread helper : helpers) {
+      try {
+        helper.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    nodes = 0;
+    for (Worker worker : workers) {
+      nodes += worker.nodes;
+    }
+    score = workers[0].score;
+    depth = workers[0].depth;
+    return bestMove;
+  }
+
+  /**
+   * Stops the running search, which then returns the best move of its last completed iteration.
+   * Has no effect if no search is running.
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Sets the listener told about every iteration the main thread completes, or null for none.
+   *
+   * @param listener the listener
+   */
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns the score of the last completed iteration of the main thread of the last search, in
+   * centipawns from the point of view of the player to move.
+   *
+   * @return the score of the last search
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Returns the depth of the last completed iteration of the main thread of the last search.
+   *
+   * @return the depth of the last search
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the number of nodes searched by all threads in the last search.
+   *
+   * @return the number of nodes searched
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  private static int typeValue(char typeId) {
+    int typeIndex = Bitboard.typeIndex(typeId);
+    return typeIndex < 0 ? UNTRACKED_VALUE : VALUES[typeIndex];
+  }
+
+  private static boolean isQuiet(int move) {
+    return !PackedMove.is(move, CAPTURE) && PackedMove.promotion(move) == 0;
+  }
+
+  // Mate scores are stored relative to the position rather than the root, so that they stay
+  // correct when the position is reached at another ply
+  private static int toTable(int score, int ply) {
+    if (score >= MATE - MAX_PLY) {
+      return score + ply;
+    } else if (score <= -MATE + MAX_PLY) {
+      return score - ply;
+    }
+    return score;
+  }
+
+  private static int fromTable(int score, int ply) {
+    if (score >= MATE - MAX_PLY) {
+      return score - ply;
+    } else if (score <= -MATE + MAX_PLY) {
+      return score + ply;
+    }
+    return score;
+  }
+
+  // The search state of one thread
+  private final class Worker {
+    private final Game game;
+    private final Board board;
+    private final int id;
+    private final long[] gameKeys;
+    private final int rootPly;
+    private final int[][] moves;
+    private final int[][] moveScores;
+    private final int[][] killers;
+    private final int[] history;
+    private long nodes;
+    private long flushedNodes;
+    private int rootBestMove;
+    private int score;
+    private int depth;
+
+    private Worker(Game game, int id, long[] gameKeys) {
+      this.game = game;
+      this.board = game.getBoard();
+      this.id = id;
+      this.gameKeys = gameKeys;
+      rootPly = board.getHistory().size();
+      int maxPieces =
+          Math.max(board.getPieces().get(WHITE).size(), board.getPieces().get(BLACK).size());
+      int bufferSize = maxPieces * PackedMove.maxPieceMoves(board);
+      moves = new int[MAX_PLY][bufferSize];
+      moveScores = new int[MAX_PLY][bufferSize];
+      killers = new int[MAX_PLY][2];
+      int squares = board.rows() * board.cols();
+      history = new int[squares * squares];
+    }
+
+    // Runs iterative deepening up to the specified depth and returns the best move of the last
+    // completed iteration
+    private int iterate(int maxDepth) {
+      int count = game.legalMoves(moves[0]);
+      if (count == 0) {
+        return 0;
+      }
+      int bestMove = moves[0][0];
+      for (int iterationDepth = 1; iterationDepth <= maxDepth; iterationDepth++) {
+        int searchDepth = Math.min(iterationDepth + id % 2, maxDepth);
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        if (searchDepth >= ASPIRATION_DEPTH) {
+          alpha = score - ASPIRATION_WINDOW;
+          beta = score + ASPIRATION_WINDOW;
+        }
+        int iterationScore;
+        while (true) {
+          rootBestMove = 0;
+          iterationScore = search(searchDepth, alpha, beta, 0);
+          if (stopped) {
+            break;
+          }
+          if (iterationScore <= alpha) {
+            alpha = -INFINITY;
+          } else if (iterationScore >= beta) {
+            beta = INFINITY;
+          } else {
+            break;
+          }
+        }
+        if (stopped) {
+          break;
+        }
+        bestMove = rootBestMove;
+        score = iterationScore;
+        depth = searchDepth;
+        if (id == 0 && listener != null) {
+          listener.iterationCompleted(
+              depth, score, searchedNodes.get() + nodes - flushedNodes, bestMove);
+        }
+        if (Math.abs(score) >= MATE - searchDepth) {
+          break;
+        }
+      }
+      return bestMove;
+    }
+
+    private int search(int depth, int alpha, int beta, int ply) {
+      if (ply > 0 && isRepetition()) {
+        return 0;
+      }
+      if (depth <= 0) {
+        return quiescence(alpha, beta, ply);
+      }
+      if (shouldStop()) {
+        return 0;
+      }
+      nodes++;
+
+      long key = board.getKey();
+      long entry = table.probe(key);
+      int tableMove = 0;
+      if (entry != TranspositionTable.NO_ENTRY) {
+        tableMove = TranspositionTable.move(entry);
+        if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+          int tableScore = fromTable(TranspositionTable.score(entry), ply);
+          Bound bound = TranspositionTable.bound(entry);
+          if (bound == Bound.EXACT
+              || (bound == Bound.LOWER && tableScore >= beta)
+              || (bound == Bound.UPPER && tableScore <= alpha)) {
+            return tableScore;
+          }
+        }
+      }
+
+      int[] plyMoves = moves[ply];
+      int count = game.legalMoves(plyMoves);
+      if (count == 0) {
+        return board.kingInCheck(board.getSideToMove()) ? -MATE + ply : 0;
+      }
+      if (ply >= MAX_PLY - 1) {
+        return evaluate();
+      }
+      scoreMoves(ply, count, tableMove);
+
+      int originalAlpha = alpha;
+      int bestScore = -INFINITY;
+      int bestMove = 0;
+      for (int i = 0; i < count; i++) {
+        int move = nextMove(ply, i, count);
+        game.move(move);
+        int moveScore = -search(depth - 1, -beta, -alpha, ply + 1);
+        game.undoMove();
+        if (stopped) {
+          return 0;
+        }
+        if (moveScore > bestScore) {
+          bestScore = moveScore;
+          bestMove = move;
+          if (ply == 0) {
+            rootBestMove = move;
+          }
+          if (moveScore > alpha) {
+            alpha = moveScore;
+            if (moveScore >= beta) {
+              if (isQuiet(move)) {
+                updateKillersAndHistory(move, depth, ply);
+              }
+              break;
+            }
+          }
+        }
+      }
+
+      Bound bound;
+      if (bestScore >= beta) {
+        bound = Bound.LOWER;
+      } else if (bestScore > originalAlpha) {
+        bound = Bound.EXACT;
+      } else {
+        bound = Bound.UPPER;
+      }
+      table.store(key, depth, bound, bestMove, toTable(bestScore, ply));
+      return bestScore;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+      if (shouldStop()) {
+        return 0;
+      }
+      nodes++;
+
+      int standPat = evaluate();
+      if (standPat >= beta || ply >= MAX_PLY - 1) {
+        return standPat;
+      }
+      if (standPat > alpha) {
+        alpha = standPat;
+      }
+
+      int[] plyMoves = moves[ply];
+      int count = game.legalMoves(plyMoves);
+      int tacticalCount = 0;
+      for (int i = 0; i < count; i++) {
+        if (!isQuiet(plyMoves[i])) {
+          plyMoves[tacticalCount++] = plyMoves[i];
+        }
+      }
+      scoreMoves(ply, tacticalCount, 0);
+
+      int bestScore = standPat;
+      for (int i = 0; i < tacticalCount; i++) {
+        int move = nextMove(ply, i, tacticalCount);
+        game.move(move);
+        int moveScore = -quiescence(-beta, -alpha, ply + 1);
+        game.undoMove();
+        if (stopped) {
+          return 0;
+        }
+        if (moveScore > bestScore) {
+          bestScore = moveScore;
+          if (moveScore > alpha) {
+            alpha = moveScore;
+            if (moveScore >= beta) {
+              break;
+            }
+          }
+        }
+      }
+      return bestScore;
+    }
+
+    // Returns the material and placement balance from the point of view of the player to move
+    private int evaluate() {
+      int balance = 0;
+      for (Color color : Color.values()) {
+        int sign = color == board.getSideToMove() ? 1 : -1;
+        List<Piece> pieces = board.getPieces().get(color);
+        for (int i = 0; i < pieces.size(); i++) {
+          balance += sign * pieceValue(pieces.get(i));
+        }
+      }
+      return balance;
+    }
+
+    private int pieceValue(Piece piece) {
+      int typeIndex = Bitboard.typeIndex(piece.getTypeId());
+      if (typeIndex < 0) {
+        return UNTRACKED_VALUE;
+      }
+      int row = piece.getPos().getRow();
+      int col = piece.getPos().getCol();
+      // The distance from the center in half squares, from 0 to rows + cols - 2
+      int centerDistance =
+          (Math.abs(2 * row - board.rows() + 1) + Math.abs(2 * col - board.cols() + 1)) / 2;
+      switch (piece.getTypeId()) {
+        case 'P':
+          int advance = piece.getColor() == WHITE ? row - 1 : board.rows() - 2 - row;
+          return VALUES[typeIndex] + 5 * advance - centerDistance;
+        case 'N':
+          return VALUES[typeIndex] - 5 * centerDistance;
+        case 'B':
+        case 'Q':
+          return VALUES[typeIndex] - 2 * centerDistance;
+        default:
+          return VALUES[typeIndex];
+      }
+    }
+
+    private void scoreMoves(int ply, int count, int tableMove) {
+      int[] plyMoves = moves[ply];
+      int[] scores = moveScores[ply];
+      int squares = board.rows() * board.cols();
+      for (int i = 0; i < count; i++) {
+        int move = plyMoves[i];
+        if (move == tableMove) {
+          scores[i] = TABLE_MOVE_SCORE;
+        } else if (!isQuiet(move)) {
+          scores[i] = CAPTURE_SCORE + 16 * victimValue(move) - attackerValue(move);
+          if (PackedMove.promotion(move) != 0) {
+            scores[i] += VALUES[Bitboard.typeIndex(PackedMove.promotion(move))];
+          }
+        } else if (move == killers[ply][0]) {
+          scores[i] = KILLER_SCORE + 1;
+        } else if (move == killers[ply][1]) {
+          scores[i] = KILLER_SCORE;
+        } else {
+          scores[i] = history[PackedMove.from(move) * squares + PackedMove.to(move)];
+        }
+      }
+    }
+
+    // Swaps the best scored of the remaining moves into place and returns it, so that moves after a
+    // cutoff are never sorted
+    private int nextMove(int ply, int index, int count) {
+      int[] plyMoves = moves[ply];
+      int[] scores = moveScores[ply];
+      int best = index;
+      for (int i = index + 1; i < count; i++) {
+        if (scores[i] > scores[best]) {
+          best = i;
+        }
+      }
+      int move = plyMoves[best];
+      plyMoves[best] = plyMoves[index];
+      plyMoves[index] = move;
+      int moveScore = scores[best];
+      scores[best] = scores[index];
+      scores[index] = moveScore;
+      return move;
+    }
+
+    private int victimValue(int move) {
+      if (PackedMove.is(move, EN_PASSANT)) {
+        return VALUES[0];
+      }
+      Piece victim = board.get(PackedMove.to(move));
+      return victim == null ? 0 : typeValue(victim.getTypeId());
+    }
+
+    private int attackerValue(int move) {
+      return typeValue(board.get(PackedMove.from(move)).getTypeId()) / 100;
+    }
+
+    private void updateKillersAndHistory(int move, int depth, int ply) {
+      if (killers[ply][0] != move) {
+        killers[ply][1] = killers[ply][0];
+        killers[ply][0] = move;
+      }
+      int index = PackedMove.from(move) * board.rows() * board.cols() + PackedMove.to(move);
+      history[index] += depth * depth;
+      if (history[index] >= HISTORY_LIMIT) {
+        for (int i = 0; i < history.length; i++) {
+          history[i] /= 2;
+        }
+      }
+    }
+
+    // Returns whether the current position occurred before since the last capture, pawn move or
+    // castling, which is scored as a draw since the side that can avoid it would have. Positions
+    // inside the search tree are looked up on the board and positions before the root in the keys
+    // of the game.
+    private boolean isRepetition() {
+      long key = board.getKey();
+      int ply = board.getHistory().size() - 2;
+      for (; ply >= rootPly && ply >= board.getIrreversiblePly(); ply -= 2) {
+        if (board.getKey(ply) == key) {
+          return true;
+        }
+      }
+      if (board.getIrreversiblePly() > rootPly) {
+        return false;
+      }
+      for (int i = gameKeys.length + ply - rootPly; i >= 0; i -= 2) {
+        if (gameKeys[i] == key) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    // Counts towards the shared node limit in batches, so that workers rarely touch the shared
+    // counter, while still stopping a single worker at exactly the node limit
+    private boolean shouldStop() {
+      if (nodes - flushedNodes >= 1024) {
+        searchedNodes.addAndGet(nodes - flushedNodes);
+        flushedNodes = nodes;
+        if (System.nanoTime() - startTime >= maxNanos) {
+          stopped = true;
+        }
+      }
+      if (searchedNodes.get() + nodes - flushedNodes >= maxNodes) {
+        stopped = true;
+      }
+      return stopped;
+    }
+  }
+
+  /** A listener told about the progress of a search. */
+  public interface Listener {
+    /**
+     * Called when the main thread completes an iteration.
+     *
+     * @param depth the depth of the iteration
+     * @param score the score of the iteration, from the point of view of the player to move
+     * @param nodes the number of nodes searched so far by all threads, approximately
+     * @param bestMove the best move of the iteration as a packed move
+     */
+    void iterationCompleted(int depth, int score, long nodes, int bestMove);
+  }
+}
@@ -0,0 +1,66 @@
+package se.lovebrandefelt.chess;
+
+public class SearchLimits {
+  private final int depth;
+  private final long nodes;
+  private final long millis;
+
+  /**
+   * Creates new search limits stopping at the specified depth, after the specified number of nodes
+   * or after the specified number of milliseconds, whichever comes first.
+   *
+   * @param depth the maximum depth in plies
+   * @param nodes the maximum number of nodes
+   * @param millis the maximum time in milliseconds
+   */
+  public SearchLimits(int depth, long nodes, long millis) {
+    if (depth <= 0 || nodes <= 0 || millis <= 0) {
+      throw new IllegalArgumentException();
+    }
+    this.depth = depth;
+    this.nodes = nodes;
+    this.millis = millis;
+  }
+
+  /**
+   * Returns search limits stopping at the specified depth.
+   *
+   * @param depth the maximum depth in plies
+   * @return the search limits
+   */
+  public static SearchLimits depth(int depth) {
+    return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns search limits stopping after the specified number of nodes.
+   *
+   * @param nodes the maximum number of nodes
+   * @return the search limits
+   */
+  public static SearchLimits nodes(long nodes) {
+    return new SearchLimits(Search.MAX_PLY, nodes, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns search limits stopping after the specified number of milliseconds.
+   *
+   * @param millis the maximum time in milliseconds
+   * @return the search limits
+   */
+  public static SearchLimits millis(long millis) {
+    return new SearchLimits(Search.MAX_PLY, Long.MAX_VALUE, millis);
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public long getNodes() {
+    return nodes;
+  }
+
+  public long getMillis() {
+    return millis;
+  }
+}
@@ -1,7 +1,5 @@
 package se.lovebrandefelt.chess;
 
-import java.util.Map;
-
 public class SilvermanKing extends King {
 
   public SilvermanKing(Color color) {
@@ -9,7 +7,17 @@ public class SilvermanKing extends King {
   }
 
   @Override
-  public Map<Pos, Move> legalMoves() {
-    return super.recursionSafeLegalMoves();
+  public Piece copy() {
+    return withMoveCount(new SilvermanKing(getColor()));
+  }
+
+  @Override
+  public boolean canCastle() {
+    return false;
+  }
+
+  @Override
+  public int generateMoves(int[] moves, int count) {
+    return super.generateRecursionSafeMoves(moves, count);
   }
 }
@@ -0,0 +1,215 @@
+package se.lovebrandefelt.chess;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size hash table of search results keyed by position keys. Each entry is two longs, the
+ * key xor the data and the data, so an entry torn by concurrent writers fails the key check and is
+ * treated as a miss. This makes the table safe to share between search threads without locks.
+ *
+ * <p>The data of an entry is packed into a long. Bits 0-31 hold the best move as a packed move,
+ * bits 32-47 the score, bits 48-55 the depth, bits 56-57 the bound and bits 58-63 the search
+ * generation that stored the entry.
+ */
+public class TranspositionTable {
+  /** The value returned by probe when there is no entry for a key. */
+  public static final long NO_ENTRY = 0;
+
+  private static final int ENTRY_LONGS = 2;
+  private static final int BYTES_PER_ENTRY = ENTRY_LONGS * Long.BYTES;
+  private static final int GENERATIONS = 64;
+  private static final Bound[] BOUNDS = Bound.values();
+
+  private final AtomicLongArray entries;
+  private final int bucketSize;
+  private final int bucketMask;
+  private final Replacement replacement;
+  private volatile int generation;
+
+  /**
+   * Creates a new depth preferred transposition table using about the specified number of
+   * megabytes with buckets of four entries.
+   *
+   * @param megabytes the size of the table in megabytes
+   */
+  public TranspositionTable(int megabytes) {
+    this(megabytes, 4, Replacement.DEPTH_PREFERRED);
+  }
+
+  /**
+   * Creates a new transposition table using at most the specified number of megabytes, with the
+   * specified number of entries per bucket and the specified replacement policy.
+   *
+   * @param megabytes the size of the table in megabytes
+   * @param bucketSize the number of entries per bucket
+   * @param replacement the replacement policy
+   */
+  public TranspositionTable(int megabytes, int bucketSize, Replacement replacement) {
+    if (megabytes <= 0 || bucketSize <= 0) {
+      throw new IllegalArgumentException();
+    }
+    long maxBuckets = ((long) megabytes << 20) / (BYTES_PER_ENTRY * bucketSize);
+    int buckets = Integer.highestOneBit((int) Math.min(maxBuckets, (1 << 29) / bucketSize));
+    if (buckets == 0) {
+      throw new IllegalArgumentException();
+    }
+    this.entries = new AtomicLongArray(buckets * bucketSize * ENTRY_LONGS);
+    this.bucketSize = bucketSize;
+    this.bucketMask = buckets - 1;
+    this.replacement = replacement;
+    this.generation = 0;
+  }
+
+  /**
+   * Returns the packed data of the entry for the specified key, or {@link #NO_ENTRY} if there is
+   * none.
+   *
+   * @param key the key of the position
+   * @return the packed data of the entry
+   */
+  public long probe(long key) {
+    int first = bucket(key);
+    for (int i = first; i < first + bucketSize * ENTRY_LONGS; i += ENTRY_LONGS) {
+      long data = entries.get(i + 1);
+      if (data != NO_ENTRY && (entries.get(i) ^ data) == key) {
+        return data;
+      }
+    }
+    return NO_ENTRY;
+  }
+
+  /**
+   * Stores a search result for the specified key, unless the replacement policy prefers the
+   * entries already in its bucket.
+   *
+   * @param key the key of the position
+   * @param depth the depth searched, between -128 and 127
+   * @param bound the bound of the score
+   * @param move the best move as a packed move, or 0 if unknown
+   * @param score the score, between -32768 and 32767
+   */
+  public void store(long key, int depth, Bound bound, int move, int score) {
+    int first = bucket(key);
+    int victim = -1;
+    int victimValue = Integer.MAX_VALUE;
+    for (int i = first; i < first + bucketSize * ENTRY_LONGS; i += ENTRY_LONGS) {
+      long data = entries.get(i + 1);
+      if (data == NO_ENTRY) {
+        if (victimValue > Integer.MIN_VALUE + 1) {
+          victim = i;
+          victimValue = Integer.MIN_VALUE + 1;
+        }
+        continue;
+      }
+      if ((entries.get(i) ^ data) == key) {
+        if (move == 0) {
+          move = move(data);
+        }
+        victim = i;
+        if (replacement == Replacement.DEPTH_PREFERRED
+            && generation(data) == generation
+            && depth(data) > depth
+            && bound != Bound.EXACT) {
+          return;
+        }
+        break;
+      }
+      int value = generation(data) == generation ? depth(data) : depth(data) - 2 * GENERATIONS;
+      if (value < victimValue) {
+        victim = i;
+        victimValue = value;
+      }
+    }
+    long oldData = entries.get(victim + 1);
+    if (replacement == Replacement.DEPTH_PREFERRED
+        && oldData != NO_ENTRY
+        && (entries.get(victim) ^ oldData) != key
+        && generation(oldData) == generation
+        && depth(oldData) > depth) {
+      return;
+    }
+    long data =
+        (move & 0xFFFFFFFFL)
+            | (score & 0xFFFFL) << 32
+            | (depth & 0xFFL) << 48
+            | (long) (bound.ordinal() + 1) << 56
+            | (long) generation << 58;
+    entries.set(victim + 1, data);
+    entries.set(victim, key ^ data);
+  }
+
+  /** Starts a new search generation, making all current entries preferred for replacement. */
+  public void newSearch() {
+    generation = (generation + 1) % GENERATIONS;
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    for (int i = 0; i < entries.length(); i++) {
+      entries.set(i, 0);
+    }
+  }
+
+  /**
+   * Returns the number of entries this table can hold.
+   *
+   * @return the capacity in entries
+   */
+  public int capacity() {
+    return entries.length() / ENTRY_LONGS;
+  }
+
+  /**
+   * Returns the permille of the first thousand entries that are used by the current generation.
+   *
+   * @return the permille of used entries
+   */
+  public int hashfull() {
+    int sampled = Math.min(1000, capacity());
+    int used = 0;
+    for (int i = 0; i < sampled; i++) {
+      long data = entries.get(i * ENTRY_LONGS + 1);
+      if (data != NO_ENTRY && generation(data) == generation) {
+        used++;
+      }
+    }
+    return used * 1000 / sampled;
+  }
+
+  public static int move(long data) {
+    return (int) data;
+  }
+
+  public static int score(long data) {
+    return (short) (data >>> 32);
+  }
+
+  public static int depth(long data) {
+    return (byte) (data >>> 48);
+  }
+
+  public static Bound bound(long data) {
+    return BOUNDS[(int) (data >>> 56 & 0x3) - 1];
+  }
+
+  private static int generation(long data) {
+    return (int) (data >>> 58);
+  }
+
+  private int bucket(long key) {
+    return ((int) (key ^ key >>> 32) & bucketMask) * bucketSize * ENTRY_LONGS;
+  }
+
+  public enum Bound {
+    EXACT,
+    LOWER,
+    UPPER
+  }
+
+  public enum Replacement {
+    /** Keeps deeper entries of the current search over shallower new results. */
+    DEPTH_PREFERRED,
+    /** Always stores new results, replacing the shallowest or oldest entry in the bucket. */
+    ALWAYS_REPLACE
+  }
+}
@@ -0,0 +1,78 @@
+package se.lovebrandefelt.chess;
+
+/**
+ * Zobrist keys for hashing positions. The keys are derived from a fixed seed, so a position gets
+ * the same key on every board of the same size.
+ */
+public final class Zobrist {
+  /** The key of black being the side to move. */
+  public static final long BLACK_TO_MOVE = mix(3L << 56);
+
+  private static final int SQUARES = 64;
+  private static final long[] PIECE_KEYS = new long[2 * Bitboard.TYPE_IDS.length() * SQUARES];
+
+  static {
+    for (Color color : Color.values()) {
+      for (int typeIndex = 0; typeIndex < Bitboard.TYPE_IDS.length(); typeIndex++) {
+        for (int square = 0; square < SQUARES; square++) {
+          PIECE_KEYS[pieceKeyIndex(color, typeIndex, square)] =
+              pieceMix(color, Bitboard.TYPE_IDS.charAt(typeIndex), square);
+        }
+      }
+    }
+  }
+
+  private Zobrist() {}
+
+  /**
+   * Returns the key of a piece of the specified color and type at the specified square.
+   *
+   * @param color the color of the piece
+   * @param typeId the typeId of the piece
+   * @param square the square index of the piece
+   * @return the key of the piece
+   */
+  public static long piece(Color color, char typeId, int square) {
+    int typeIndex = Bitboard.typeIndex(typeId);
+    if (typeIndex >= 0 && square < SQUARES) {
+      return PIECE_KEYS[pieceKeyIndex(color, typeIndex, square)];
+    }
+    return pieceMix(color, typeId, square);
+  }
+
+  /**
+   * Returns the key of a castling right for the king or rook at the specified square.
+   *
+   * @param square the square index of the king or rook
+   * @return the key of the castling right
+   */
+  public static long castling(int square) {
+    return mix(1L << 56 | square);
+  }
+
+  /**
+   * Returns the key of an en passant capture being possible on the specified column.
+   *
+   * @param col the column
+   * @return the key of the en passant column
+   */
+  public static long enPassant(int col) {
+    return mix(2L << 56 | col);
+  }
+
+  private static int pieceKeyIndex(Color color, int typeIndex, int square) {
+    return (color.ordinal() * Bitboard.TYPE_IDS.length() + typeIndex) * SQUARES + square;
+  }
+
+  private static long pieceMix(Color color, char typeId, int square) {
+    return mix((long) color.ordinal() << 48 | (long) typeId << 32 | square);
+  }
+
+  // The SplitMix64 finalizer, which maps distinct inputs to well spread distinct outputs
+  private static long mix(long z) {
+    z = (z ^ 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 30)) * 0x94D049BB133111EBL;
+    z = (z ^ (z >>> 27)) * 0xBF58476D1CE4E5B9L;
+    return z ^ (z >>> 31);
+  }
+}
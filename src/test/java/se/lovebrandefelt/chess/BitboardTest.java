@@ -0,0 +1,73 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.silvermanChessSetup;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+
+import org.junit.jupiter.api.Test;
+
+class BitboardTest {
+  @Test
+  void standardSetupHasOccupiedFirstAndLastTwoRows() {
+    Bitboard bitboard = standardSetup().getBitboard();
+    assertEquals(0xFFFF00000000FFFFL, bitboard.occupied());
+    assertEquals(0x000000000000FFFFL, bitboard.pieces(WHITE));
+    assertEquals(0xFFFF000000000000L, bitboard.pieces(BLACK));
+    assertEquals(0x000000000000FF00L, bitboard.pieces(WHITE, 'P'));
+    assertEquals(1L << 60, bitboard.pieces(BLACK, 'K'));
+  }
+
+  @Test
+  void movesAndCapturesUpdateTheBitboard() {
+    Board board = new Board(8, 8);
+    board.add(new Rook(WHITE), new Pos("a1"));
+    board.add(new Knight(BLACK), new Pos("a8"));
+    board.move(new Move(new Pos("a1"), new Pos("a8")));
+    Bitboard bitboard = board.getBitboard();
+    assertEquals(1L << 56, bitboard.occupied());
+    assertEquals(1L << 56, bitboard.pieces(WHITE, 'R'));
+    assertEquals(0, bitboard.pieces(BLACK));
+    assertTrue(board.isEmpty(new Pos("a1")));
+    assertFalse(board.isEmpty(new Pos("a8")));
+
+    board.undoMove();
+    assertEquals(1L | 1L << 56, bitboard.occupied());
+    assertEquals(1L << 56, bitboard.pieces(BLACK, 'N'));
+    assertEquals(1L, bitboard.pieces(WHITE, 'R'));
+  }
+
+  @Test
+  void boardsThatAreNot8x8HaveNoBitboard() {
+    assertNull(silvermanChessSetup().getBitboard());
+  }
+
+  @Test
+  void attacksStopAtTheFirstOccupiedSquare() {
+    long occupied = 1L << 3 | 1L << 24;
+    assertEquals(0x000000000101010EL, Bitboard.rookAttacks(0, occupied));
+    assertEquals(0x8040201008040200L, Bitboard.bishopAttacks(0, occupied));
+    assertEquals(0x0000000008040200L, Bitboard.bishopAttacks(0, occupied | 1L << 27));
+    assertEquals(
+        1L << 54 | 1L << 45 | 1L << 36 | 1L << 27, Bitboard.bishopAttacks(63, 1L << 27 | 1L << 18));
+    assertEquals(
+        0x7F00000000000000L | 1L << 55 | 1L << 47 | 1L << 39, Bitboard.rookAttacks(63, 1L << 39));
+    assertEquals(0x0000000000020400L, Bitboard.knightAttacks(0));
+    assertEquals(0x0000000000000302L, Bitboard.kingAttacks(0));
+    assertEquals(0x0000000000050000L, Bitboard.pawnAttacks(WHITE, 9));
+    assertEquals(0x0000000000000005L, Bitboard.pawnAttacks(BLACK, 9));
+  }
+
+  @Test
+  void betweenIsEmptyUnlessSquaresShareALine() {
+    assertEquals(0x000000000000007EL, Bitboard.between(0, 7));
+    assertEquals(0x0000000000000000L, Bitboard.between(0, 1));
+    assertEquals(0x0040201008040200L, Bitboard.between(63, 0));
+    assertEquals(0x0000000000000000L, Bitboard.between(0, 17));
+    assertEquals(0x0000000000000000L, Bitboard.between(5, 5));
+  }
+}
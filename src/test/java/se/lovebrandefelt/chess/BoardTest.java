@@ -1,7 +1,17 @@
 package se.lovebrandefelt.chess;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
 
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -17,4 +27,103 @@ class BoardTest {
   void removeReturnsNullWhenRemovingFromEmptySquare() {
     assertNull(board.remove(new Pos(0, 0)));
   }
+
+  @Test
+  void piecesHoldTheSharedPositionOfTheirSquare() {
+    Piece knight = board.add(new Knight(WHITE), new Pos("g1"));
+    assertSame(board.pos(board.index(new Pos("g1"))), knight.getPos());
+    assertSame(Pos.of(0, 6), knight.getPos());
+    assertSame(Pos.of(-1, 2), Pos.of(0, 0).offset(new Pos(-1, 2)));
+    assertEquals(new Pos(100, 100), Pos.of(100, 100));
+  }
+
+  @Test
+  void boardsHoldAtMostTheSquaresAPackedMoveCanAddress() {
+    Board large = new Board(64, 64);
+    large.add(new King(WHITE), Pos.of(0, 0));
+    large.add(new King(BLACK), Pos.of(63, 0));
+    large.add(new Rook(WHITE), Pos.of(60, 60));
+    int count = 0;
+    for (Map<Pos, Move> moves : new Game(large, WHITE).legalMoves().values()) {
+      count += moves.size();
+    }
+    assertEquals(3 + 126, count);
+    assertThrows(IllegalArgumentException.class, () -> new Board(70, 70));
+    assertThrows(IllegalArgumentException.class, () -> new Board(4097, 1));
+  }
+
+  @Test
+  void pawnsThreatenDiagonallyButNotForward() {
+    for (Board board : new Board[] {new Board(8, 8), new Board(6, 6)}) {
+      board.add(new Pawn(WHITE), new Pos("c2"));
+      assertTrue(board.isThreatened(new Pos("b3"), WHITE));
+      assertTrue(board.isThreatened(new Pos("d3"), WHITE));
+      assertFalse(board.isThreatened(new Pos("c3"), WHITE));
+      assertFalse(board.isThreatened(new Pos("b1"), WHITE));
+      assertFalse(board.isThreatened(new Pos("b3"), BLACK));
+    }
+  }
+
+  @Test
+  void slidingPiecesAreBlocked() {
+    for (Board board : new Board[] {new Board(8, 8), new Board(6, 6)}) {
+      board.add(new Rook(BLACK), new Pos("a1"));
+      board.add(new Bishop(BLACK), new Pos("f6"));
+      board.add(new Knight(WHITE), new Pos("a3"));
+      assertTrue(board.isThreatened(new Pos("a3"), BLACK));
+      assertFalse(board.isThreatened(new Pos("a4"), BLACK));
+      assertTrue(board.isThreatened(new Pos("f1"), BLACK));
+      assertTrue(board.isThreatened(new Pos("c3"), BLACK));
+      assertFalse(board.isThreatened(new Pos("b3"), BLACK));
+    }
+  }
+
+  @Test
+  void knightsAndKingsThreatenAdjacentSquares() {
+    for (Board board : new Board[] {new Board(8, 8), new Board(6, 6)}) {
+      board.add(new Knight(WHITE), new Pos("b1"));
+      board.add(new King(BLACK), new Pos("e5"));
+      assertTrue(board.isThreatened(new Pos("c3"), WHITE));
+      assertTrue(board.isThreatened(new Pos("d2"), WHITE));
+      assertFalse(board.isThreatened(new Pos("b2"), WHITE));
+      assertTrue(board.isThreatened(new Pos("d4"), BLACK));
+      assertFalse(board.isThreatened(new Pos("c4"), BLACK));
+    }
+  }
+
+  @Test
+  void copyIsIndependentOfTheOriginal() {
+    Board original = standardSetup();
+    Game game = new Game(original, WHITE);
+    game.makeMove("e4");
+    Board copy = original.copy();
+    assertEquals(original.getKey(), copy.getKey());
+    assertEquals(original.getEnPassant(), copy.getEnPassant());
+    assertEquals(BLACK, copy.getSideToMove());
+
+    new Game(copy, BLACK).makeMove("d5");
+    assertNotEquals(original.getKey(), copy.getKey());
+    assertTrue(original.isEmpty(new Pos("d5")));
+    assertFalse(original.isEmpty(new Pos("d7")));
+    assertTrue(copy.get(new Pos("e4")).hasMoved());
+    assertFalse(copy.get(new Pos("e4")) == original.get(new Pos("e4")));
+  }
+
+  @Test
+  void copyHasTheSameLegalMovesAsTheOriginal() {
+    Board original = standardSetup();
+    Game game = new Game(original, WHITE);
+    for (String move : new String[] {"e4", "e5", "Nf3", "Nc6", "Bc4", "Nf6", "Ke2"}) {
+      game.makeMove(move);
+    }
+    Board copy = original.copy();
+    assertEquals(original.getCastlingRights(), copy.getCastlingRights());
+    assertEquals(original.getBitboard().pieces(WHITE), copy.getBitboard().pieces(WHITE));
+    assertEquals(original.getBitboard().pieces(BLACK), copy.getBitboard().pieces(BLACK));
+    Map<Pos, Map<Pos, Move>> copyMoves = new Game(copy, original.getSideToMove()).legalMoves();
+    assertEquals(game.legalMoves().keySet(), copyMoves.keySet());
+    for (Pos from : copyMoves.keySet()) {
+      assertEquals(game.legalMoves().get(from).keySet(), copyMoves.get(from).keySet());
+    }
+  }
 }
@@ -0,0 +1,125 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class FenTest {
+  @Test
+  void standardSetupMatchesTheStandardSetupBoard() {
+    Board board = Fen.parse(Fen.STANDARD_SETUP);
+    assertEquals(Position.of(new Game(standardSetup(), WHITE).getBoard()), Position.of(board));
+    assertEquals(Fen.STANDARD_SETUP, Fen.format(standardSetup()));
+  }
+
+  @Test
+  void formatFollowsTheGame() {
+    Board board = standardSetup();
+    Game game = new Game(board, WHITE);
+    game.makeMove("e4");
+    assertEquals(
+        "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", Fen.format(board));
+    game.makeMove("Nf6");
+    game.makeMove("Ke2");
+    assertEquals(
+        "rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", Fen.format(board));
+  }
+
+  @Test
+  void moveCountersContinueFromTheParsedOnes() {
+    Board board = Fen.parse("4k3/8/8/8/8/8/4P3/4K3 b - - 7 30");
+    Game game = new Game(board, board.getSideToMove());
+    game.makeMove("Kd7");
+    assertEquals("8/3k4/8/8/8/8/4P3/4K3 w - - 8 31", Fen.format(board));
+    game.makeMove("e4");
+    assertEquals("8/3k4/8/8/4P3/8/8/4K3 b - - 0 31", Fen.format(board));
+    game.undoMove();
+    assertEquals("8/3k4/8/8/8/8/4P3/4K3 w - - 8 31", Fen.format(board));
+  }
+
+  @Test
+  void parsedPositionsFormatBack() {
+    String[] fens = {
+      "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+      "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 12 40",
+      "rnbqkbnr/pp1ppppp/8/2pP4/8/8/PPP1PPPP/RNBQKBNR w KQkq c6 0 3",
+      "bqnb1rkr/pp3ppp/3ppn2/2p5/5P2/P2P4/NPP1P1PP/BQ1BNRKR w KQkq - 0 1",
+      "rk2r3/8/8/8/8/8/8/RK1R3R b Dq - 5 31"
+    };
+    for (String fen : fens) {
+      assertEquals(fen, Fen.format(Fen.parse(fen)));
+    }
+  }
+
+  @Test
+  void silvermanKingsHaveNoCastlingRights() {
+    Board board = Game.silvermanChessSetup();
+    assertEquals(0, board.getCastlingRights());
+    assertEquals("rqkr/pppp/4/PPPP/RQKR w - - 0 1", Fen.format(board));
+  }
+
+  @Test
+  void shredderCastlingRightsAreRead() {
+    Board shredder = Fen.parse("bqnb1rkr/pp3ppp/3ppn2/2p5/5P2/P2P4/NPP1P1PP/BQ1BNRKR w HFhf");
+    Board xfen = Fen.parse("bqnb1rkr/pp3ppp/3ppn2/2p5/5P2/P2P4/NPP1P1PP/BQ1BNRKR w KQkq");
+    assertEquals(Position.of(xfen), Position.of(shredder));
+    assertFalse(shredder.get(new Pos("f1")).hasMoved());
+    assertFalse(shredder.get(new Pos("g1")).hasMoved());
+  }
+
+  @Test
+  void piecesWithoutRightsHaveMoved() {
+    Board board = Fen.parse("r3k2r/8/8/8/3pP3/8/P7/R3K2R b Kq e3");
+    assertFalse(board.get(new Pos("h1")).hasMoved());
+    assertTrue(board.get(new Pos("a1")).hasMoved());
+    assertFalse(board.get(new Pos("e1")).hasMoved());
+    assertTrue(board.get(new Pos("h8")).hasMoved());
+    assertFalse(board.get(new Pos("a2")).hasMoved());
+    assertTrue(board.get(new Pos("e4")).hasMoved());
+    assertEquals(BLACK, board.getSideToMove());
+    assertEquals(board.index(new Pos("e3")), board.getEnPassant());
+  }
+
+  @Test
+  void otherBoardSizesAreRead() {
+    Board board = Fen.parse("rqkr/pppp/4/PPPP/RQKR w -");
+    assertEquals(5, board.rows());
+    assertEquals(4, board.cols());
+    assertEquals("rqkr/pppp/4/PPPP/RQKR w - - 0 1", Fen.format(board));
+    assertEquals(10, Fen.parse("10/10/10 w").cols());
+    assertEquals(157, Fen.parse(String.join("/", Collections.nCopies(157, "26")) + " w").rows());
+  }
+
+  @Test
+  void boardsWithTooManySquaresAreRejected() {
+    String fen = String.join("/", Collections.nCopies(158, "26")) + " w";
+    assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen));
+  }
+
+  @Test
+  void invalidStringsAreRejected() {
+    String[] fens = {
+      "",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNRR w",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkqC",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq j3",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w  KQkq"
+    };
+    for (String fen : fens) {
+      assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+    }
+  }
+}
@@ -1,13 +1,19 @@
 package se.lovebrandefelt.chess;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static se.lovebrandefelt.chess.Color.BLACK;
 import static se.lovebrandefelt.chess.Color.WHITE;
 import static se.lovebrandefelt.chess.Game.State.BLACK_WON;
 import static se.lovebrandefelt.chess.Game.State.DRAW;
 import static se.lovebrandefelt.chess.Game.State.IN_PROGRESS;
 import static se.lovebrandefelt.chess.Game.State.WHITE_WON;
+import static se.lovebrandefelt.chess.Game.standardSetup;
 
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -53,4 +59,161 @@ class GameStateTest {
     board.add(new King(WHITE), new Pos("a8"));
     assertEquals(DRAW, game.state());
   }
+
+  @Test
+  void gameEndsInDrawOnThreefoldRepetition() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+    for (int i = 0; i < 2; i++) {
+      game.makeMove("Nf3");
+      game.makeMove("Nf6");
+      game.makeMove("Ng1");
+      game.makeMove("Ng8");
+    }
+    assertEquals(DRAW, game.state());
+  }
+
+  @Test
+  void repetitionIsFoundAfterADoubleStepNoPawnCanCapture() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+    game.makeMove("e4");
+    for (int i = 0; i < 2; i++) {
+      game.makeMove("Nf6");
+      game.makeMove("Nf3");
+      game.makeMove("Ng8");
+      game.makeMove("Ng1");
+    }
+    assertEquals(DRAW, game.state());
+  }
+
+  @Test
+  void gameIsInProgressAfterTwofoldRepetition() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Ng1");
+    game.makeMove("Ng8");
+    assertEquals(IN_PROGRESS, game.state());
+  }
+
+  @Test
+  void gameEndsInDrawAfterFiftyMovesWithoutCaptureOrPawnMove() {
+    board = Fen.parse("4k3/8/8/8/8/8/4P3/4K3 w - - 99 80");
+    game = new Game(board, WHITE);
+    assertEquals(IN_PROGRESS, game.state());
+    game.makeMove("Kd1");
+    assertEquals(DRAW, game.state());
+    game.undoMove();
+    game.makeMove("e4");
+    assertEquals(IN_PROGRESS, game.state());
+  }
+
+  @Test
+  void repetitionIsNotCountedAcrossAPawnMove() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Ng1");
+    game.makeMove("Ng8");
+    game.makeMove("d3");
+    game.makeMove("d6");
+    for (int i = 0; i < 2; i++) {
+      game.makeMove("Nf3");
+      game.makeMove("Nf6");
+      game.makeMove("Ng1");
+      game.makeMove("Ng8");
+    }
+    assertEquals(DRAW, game.state());
+    game.undoMove();
+    assertEquals(IN_PROGRESS, game.state());
+    assertEquals(6, board.getIrreversiblePly());
+  }
+
+  @Test
+  void gameEndsInDrawWithoutMaterialToMate() {
+    for (String fen :
+        new String[] {
+          "4k3/8/8/8/8/8/8/4K3 w - - 0 1",
+          "4k3/8/8/8/8/8/8/4KN2 w - - 0 1",
+          "4kb2/8/8/8/8/8/8/4K3 w - - 0 1",
+          "4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1"
+        }) {
+      board = Fen.parse(fen);
+      assertEquals(DRAW, new Game(board, board.getSideToMove()).state(), fen);
+    }
+    for (String fen :
+        new String[] {
+          "4kb2/8/8/8/8/8/8/3BK3 w - - 0 1",
+          "4k3/8/8/8/8/8/8/3NKN2 w - - 0 1",
+          "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"
+        }) {
+      board = Fen.parse(fen);
+      assertEquals(IN_PROGRESS, new Game(board, board.getSideToMove()).state(), fen);
+    }
+  }
+
+  @Test
+  void materialFollowsCapturesAndPromotions() {
+    board = Fen.parse("4k3/3P4/8/8/8/8/8/4K3 w - - 0 1");
+    game = new Game(board, WHITE);
+    game.makeMove("d8=Q+");
+    assertEquals(IN_PROGRESS, game.state());
+    game.makeMove("Kxd8");
+    assertEquals(DRAW, game.state());
+    game.undoMove();
+    game.undoMove();
+    assertEquals(
+        Board.materialOf(WHITE, 'K') + Board.materialOf(WHITE, 'P') + Board.materialOf(BLACK, 'K'),
+        board.getMaterial());
+  }
+
+  @Test
+  void rememberedStateFollowsMovesAndUndos() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+    assertEquals(20, game.legalMoveCount());
+    game.makeMove("f3");
+    game.makeMove("e5");
+    game.makeMove("g4");
+    assertEquals(IN_PROGRESS, game.state());
+    game.makeMove("Qh4");
+    assertTrue(game.inCheck());
+    assertEquals(0, game.legalMoveCount());
+    assertEquals(BLACK_WON, game.state());
+    game.undoMove();
+    assertFalse(game.inCheck());
+    assertEquals(IN_PROGRESS, game.state());
+  }
+
+  @Test
+  void writingNotationKeepsTheRememberedState() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+    game.makeMove("e4");
+    game.makeMove("e5");
+    Map<Pos, Map<Pos, Move>> legalMoves = game.legalMoves();
+    assertEquals(IN_PROGRESS, game.state());
+    Notation notation = new Notation(game);
+    assertEquals("Qh5", notation.san(legalMoves.get(new Pos("d1")).get(new Pos("h5"))));
+    assertEquals("Bf1-b5", notation.lan(notation.parse("Bb5", 0, 3)));
+    assertSame(legalMoves, game.legalMoves());
+    game.makeMove("Qh5");
+    assertNotSame(legalMoves, game.legalMoves());
+  }
+
+  @Test
+  void rememberedStateFollowsPiecesAddedToTheBoard() {
+    board = new Board(8, 8);
+    board.add(new King(WHITE), new Pos("a1"));
+    board.add(new King(BLACK), new Pos("h8"));
+    board.add(new Rook(BLACK), new Pos("b8"));
+    game = new Game(board, WHITE);
+    assertEquals(IN_PROGRESS, game.state());
+    board.add(new Rook(BLACK), new Pos("a8"));
+    assertTrue(game.inCheck());
+    assertEquals(BLACK_WON, game.state());
+  }
 }
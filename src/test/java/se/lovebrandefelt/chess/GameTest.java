@@ -1,5 +1,6 @@
 package se.lovebrandefelt.chess;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -7,6 +8,8 @@ import static se.lovebrandefelt.chess.Color.BLACK;
 import static se.lovebrandefelt.chess.Color.WHITE;
 import static se.lovebrandefelt.chess.Game.standardSetup;
 
+import java.util.Arrays;
+import java.util.Random;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -86,4 +89,44 @@ class GameTest {
     game.makeMove(from, to);
     assertEquals(BLACK, game.getCurrentPlayer());
   }
+
+  @Test
+  void cachedMovesMatchFreshlyGeneratedMovesAfterMovesAndUndos() {
+    Random random = new Random(1);
+    int[] moves = new int[PackedMove.MAX_MOVES];
+    for (int ply = 0; ply < 40; ply++) {
+      assertArrayEquals(freshLegalMoves(), sortedLegalMoves(game));
+      int count = game.legalMoves(moves);
+      if (count == 0) {
+        break;
+      }
+      game.move(moves[random.nextInt(count)]);
+    }
+    while (!board.getHistory().empty()) {
+      game.undoMove();
+      assertArrayEquals(freshLegalMoves(), sortedLegalMoves(game));
+    }
+  }
+
+  @Test
+  void legalMovesFollowChangesMadeDirectlyToTheBoard() {
+    sortedLegalMoves(game);
+    board.remove(new Pos("d2"));
+    assertArrayEquals(freshLegalMoves(), sortedLegalMoves(game));
+  }
+
+  private int[] freshLegalMoves() {
+    Game freshGame = new Game(board, board.getSideToMove());
+    int[] moves = sortedLegalMoves(freshGame);
+    board.setGame(game);
+    return moves;
+  }
+
+  private static int[] sortedLegalMoves(Game game) {
+    int[] moves = new int[PackedMove.MAX_MOVES];
+    int count = game.legalMoves(moves);
+    moves = Arrays.copyOf(moves, count);
+    Arrays.sort(moves);
+    return moves;
+  }
 }
@@ -1,5 +1,6 @@
 package se.lovebrandefelt.chess;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -98,4 +99,38 @@ class KingTest {
     board.add(new Rook(WHITE), new Pos("a1"));
     assertTrue(game.legalMoves().get(king.getPos()).containsKey(new Pos("c1")));
   }
+
+  @Test
+  void movingTheRookLosesItsCastlingRightUntilUndone() {
+    Piece king = board.add(new King(WHITE), new Pos("e1"));
+    board.add(new Rook(WHITE), new Pos("a1"));
+    board.add(new Rook(WHITE), new Pos("h1"));
+    board.add(new King(BLACK), new Pos("e8"));
+    long rights = board.getCastlingRights();
+    game.makeMove(new Pos("h1"), new Pos("h2"));
+    game.makeMove(new Pos("e8"), new Pos("e7"));
+    game.makeMove(new Pos("h2"), new Pos("h1"));
+    game.makeMove(new Pos("e7"), new Pos("e8"));
+    assertFalse(game.legalMoves().get(king.getPos()).containsKey(new Pos("g1")));
+    assertTrue(game.legalMoves().get(king.getPos()).containsKey(new Pos("c1")));
+    for (int i = 0; i < 4; i++) {
+      game.undoMove();
+    }
+    assertEquals(rights, board.getCastlingRights());
+    assertTrue(game.legalMoves().get(king.getPos()).containsKey(new Pos("g1")));
+  }
+
+  @Test
+  void movingTheKingLosesEveryCastlingRight() {
+    Piece king = board.add(new King(WHITE), new Pos("e1"));
+    board.add(new Rook(WHITE), new Pos("a1"));
+    board.add(new Rook(WHITE), new Pos("h1"));
+    board.add(new King(BLACK), new Pos("e8"));
+    game.makeMove(new Pos("e1"), new Pos("e2"));
+    game.makeMove(new Pos("e8"), new Pos("e7"));
+    game.makeMove(new Pos("e2"), new Pos("e1"));
+    game.makeMove(new Pos("e7"), new Pos("e8"));
+    assertEquals(0, board.getCastlingRights());
+    assertFalse(game.legalMoves().get(king.getPos()).containsKey(new Pos("c1")));
+  }
 }
@@ -0,0 +1,162 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+import static se.lovebrandefelt.chess.IllegalMoveException.Reason.AMBIGUOUS;
+import static se.lovebrandefelt.chess.IllegalMoveException.Reason.ILLEGAL;
+import static se.lovebrandefelt.chess.IllegalMoveException.Reason.MALFORMED;
+
+import org.junit.jupiter.api.Test;
+import se.lovebrandefelt.chess.IllegalMoveException.Reason;
+
+class NotationTest {
+  private static int parse(Game game, String san) {
+    return new Notation(game).parse(san, 0, san.length());
+  }
+
+  private static Reason reason(Game game, String move) {
+    return assertThrows(IllegalMoveException.class, () -> parse(game, move)).getReason();
+  }
+
+  private static int move(Board board, String from, String to, int flags) {
+    return PackedMove.of(board.index(new Pos(from)), board.index(new Pos(to)), flags);
+  }
+
+  @Test
+  void pawnAndPieceMovesAreRead() {
+    Game game = new Game(standardSetup(), WHITE);
+    Board board = game.getBoard();
+    assertEquals(move(board, "e2", "e4", PackedMove.DOUBLE_STEP), parse(game, "e4"));
+    assertEquals(move(board, "g1", "f3", PackedMove.QUIET), parse(game, "Nf3+"));
+    assertEquals(ILLEGAL, reason(game, "e5"));
+    assertEquals(ILLEGAL, reason(game, "Nd2"));
+    assertEquals(MALFORMED, reason(game, "Zz9"));
+    assertEquals(MALFORMED, reason(game, "+"));
+    assertEquals(MALFORMED, reason(game, "e9"));
+  }
+
+  @Test
+  void capturesAndDisambiguationAreRead() {
+    Game game = new Game(Fen.parse("4k3/8/8/3p4/4P3/8/4K3/R6R w - -"), WHITE);
+    Board board = game.getBoard();
+    assertEquals(move(board, "e4", "d5", PackedMove.CAPTURE), parse(game, "exd5"));
+    assertEquals(AMBIGUOUS, reason(game, "Rd1"));
+    assertEquals(move(board, "a1", "d1", PackedMove.QUIET), parse(game, "Rad1"));
+    assertEquals(move(board, "h1", "f1", PackedMove.QUIET), parse(game, "Rh1f1!?"));
+  }
+
+  @Test
+  void castlingAndPromotionsAreRead() {
+    Game game = new Game(Fen.parse("4k3/1P6/8/8/8/8/8/R3K2R w KQ -"), WHITE);
+    Board board = game.getBoard();
+    assertEquals(move(board, "e1", "g1", PackedMove.CASTLING), parse(game, "O-O"));
+    assertEquals(move(board, "e1", "c1", PackedMove.CASTLING), parse(game, "0-0-0"));
+    int promotion = move(board, "b7", "b8", PackedMove.QUIET);
+    assertEquals(PackedMove.withPromotion(promotion, 'N'), parse(game, "b8=N"));
+    assertEquals(PackedMove.withPromotion(promotion, 'R'), parse(game, "b8R+"));
+    assertEquals(PackedMove.withPromotion(promotion, 'Q'), parse(game, "b8"));
+  }
+
+  @Test
+  void longAndUciNotationAreRead() {
+    Game game = new Game(Fen.parse("4k3/1P6/8/8/8/8/4P3/R3K2R w KQ -"), WHITE);
+    Board board = game.getBoard();
+    assertEquals(move(board, "e2", "e4", PackedMove.DOUBLE_STEP), parse(game, "e2-e4"));
+    assertEquals(move(board, "e2", "e3", PackedMove.QUIET), parse(game, "e2e3"));
+    assertEquals(move(board, "a1", "a8", PackedMove.QUIET), parse(game, "Ra1-a8+"));
+    assertEquals(move(board, "e1", "g1", PackedMove.CASTLING), parse(game, "e1g1"));
+    int promotion = move(board, "b7", "b8", PackedMove.QUIET);
+    assertEquals(PackedMove.withPromotion(promotion, 'B'), parse(game, "b7b8b"));
+  }
+
+  @Test
+  void sanIsWritten() {
+    Game game = new Game(Fen.parse("4k3/1P6/8/3p4/4P3/8/4K3/R6R w - -"), WHITE);
+    Board board = game.getBoard();
+    Notation notation = new Notation(game);
+    assertEquals("exd5", notation.san(move(board, "e4", "d5", PackedMove.CAPTURE)));
+    assertEquals("Rad1", notation.san(move(board, "a1", "d1", PackedMove.QUIET)));
+    assertEquals("Ra2", notation.san(move(board, "a1", "a2", PackedMove.QUIET)));
+    assertEquals("Ra8+", notation.san(move(board, "a1", "a8", PackedMove.QUIET)));
+    int promotion = move(board, "b7", "b8", PackedMove.QUIET);
+    assertEquals("b8=Q+", notation.san(PackedMove.withPromotion(promotion, 'Q')));
+    assertEquals("b8=N", notation.san(PackedMove.withPromotion(promotion, 'N')));
+    assertEquals(
+        ILLEGAL,
+        assertThrows(
+                IllegalMoveException.class,
+                () -> notation.san(move(board, "e2", "e4", PackedMove.QUIET)))
+            .getReason());
+  }
+
+  @Test
+  void sanDisambiguatesByFileRankAndSquare() {
+    Game game = new Game(Fen.parse("8/k7/8/8/4Q2Q/2K5/8/7Q w - -"), WHITE);
+    Board board = game.getBoard();
+    Notation notation = new Notation(game);
+    assertEquals("Qh4e1", notation.san(move(board, "h4", "e1", PackedMove.QUIET)));
+    assertEquals("Qee1", notation.san(move(board, "e4", "e1", PackedMove.QUIET)));
+    assertEquals("Q1e1", notation.san(move(board, "h1", "e1", PackedMove.QUIET)));
+    assertEquals("Q1h2", notation.san(move(board, "h1", "h2", PackedMove.QUIET)));
+  }
+
+  @Test
+  void sanMarksMate() {
+    Game game = new Game(Fen.parse("k7/8/1K6/8/8/8/8/7Q w - -"), WHITE);
+    Board board = game.getBoard();
+    assertEquals("Qh8#", new Notation(game).san(move(board, "h1", "h8", PackedMove.QUIET)));
+  }
+
+  @Test
+  void sanIsWrittenForPromotionsFromTheLegalMoveMap() {
+    Game game = new Game(Fen.parse("1k6/4P3/8/8/8/8/8/4K3 w - -"), WHITE);
+    Notation notation = new Notation(game);
+    Move move = game.legalMoves().get(new Pos("e7")).get(new Pos("e8"));
+    assertEquals("e8=Q+", notation.san(move));
+  }
+
+  @Test
+  void writtenMovesAreReadBack() {
+    Game game = new Game(standardSetup(), WHITE);
+    Notation notation = new Notation(game);
+    for (String san : new String[] {"e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7#"}) {
+      int move = parse(game, san);
+      assertEquals(san, notation.san(move));
+      assertEquals(move, notation.parse(notation.lan(move), 0, notation.lan(move).length()));
+      String uci = Notation.uci(game.getBoard(), move);
+      assertEquals(move, notation.parse(uci, 0, uci.length()));
+      game.move(move);
+    }
+    assertEquals(Game.State.WHITE_WON, game.state());
+  }
+
+  @Test
+  void chess960CastlingIsWrittenAsTheKingTakingItsRook() {
+    Game game = new Game(Fen.parse("1r4kr/8/8/8/8/8/8/1R4KR w HBhb - 0 1"), WHITE);
+    Board board = game.getBoard();
+    Notation notation = new Notation(game);
+    int kingside = move(board, "g1", "g1", PackedMove.CASTLING);
+    int queenside = move(board, "g1", "c1", PackedMove.CASTLING);
+    assertEquals("g1h1", Notation.uci(board, kingside));
+    assertEquals("g1b1", Notation.uci(board, queenside));
+    assertEquals(kingside, notation.parse("g1h1", 0, 4));
+    assertEquals(queenside, notation.parse("g1b1", 0, 4));
+    assertEquals(move(board, "g1", "f1", PackedMove.QUIET), notation.parse("g1f1", 0, 4));
+  }
+
+  @Test
+  void lanAndUciAreWritten() {
+    Game game = new Game(Fen.parse("4k3/1P6/8/3p4/4P3/8/8/R3K2R w KQ -"), WHITE);
+    Board board = game.getBoard();
+    Notation notation = new Notation(game);
+    assertEquals("e4xd5", notation.lan(move(board, "e4", "d5", PackedMove.CAPTURE)));
+    assertEquals("Ra1-a8+", notation.lan(move(board, "a1", "a8", PackedMove.QUIET)));
+    assertEquals("O-O", notation.lan(move(board, "e1", "g1", PackedMove.CASTLING)));
+    assertEquals("e1c1", Notation.uci(board, move(board, "e1", "c1", PackedMove.CASTLING)));
+    int promotion = PackedMove.withPromotion(move(board, "b7", "b8", PackedMove.QUIET), 'R');
+    assertEquals("b7-b8=R+", notation.lan(promotion));
+    assertEquals("b7b8r", Notation.uci(board, promotion));
+  }
+}
@@ -0,0 +1,111 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+import static se.lovebrandefelt.chess.PackedMove.CAPTURE;
+import static se.lovebrandefelt.chess.PackedMove.CASTLING;
+import static se.lovebrandefelt.chess.PackedMove.DOUBLE_STEP;
+import static se.lovebrandefelt.chess.PackedMove.EN_PASSANT;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PackedMoveTest {
+  private Board board;
+  private Game game;
+  private int[] moves;
+
+  @BeforeEach
+  void beforeEach() {
+    board = new Board(8, 8);
+    game = new Game(board, WHITE);
+    moves = new int[PackedMove.MAX_MOVES];
+  }
+
+  @Test
+  void packedMovesKeepTheirParts() {
+    int move = PackedMove.withPromotion(PackedMove.of(52, 60, CAPTURE), 'N');
+    assertEquals(52, PackedMove.from(move));
+    assertEquals(60, PackedMove.to(move));
+    assertTrue(PackedMove.is(move, CAPTURE));
+    assertEquals('N', PackedMove.promotion(move));
+    assertEquals(0, PackedMove.promotion(PackedMove.withoutPromotion(move)));
+  }
+
+  @Test
+  void standardSetupHasTwentyMoves() {
+    game = new Game(standardSetup(), WHITE);
+    assertEquals(20, game.legalMoves(moves));
+  }
+
+  @Test
+  void promotionsGenerateOneMovePerPieceType() {
+    Piece pawn = board.add(new Pawn(WHITE), new Pos("e7"));
+    assertEquals(4, pawn.generateMoves(moves, 0));
+    Set<Character> promotions = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      promotions.add(PackedMove.promotion(moves[i]));
+    }
+    assertEquals(new HashSet<>(Arrays.asList('Q', 'R', 'B', 'N')), promotions);
+    assertEquals(1, pawn.legalMoves().size());
+  }
+
+  @Test
+  void doubleStepsAreFlagged() {
+    Piece pawn = board.add(new Pawn(WHITE), new Pos("e2"));
+    int count = pawn.generateMoves(moves, 0);
+    assertEquals(2, count);
+    assertTrue(PackedMove.is(moves[0], DOUBLE_STEP) || PackedMove.is(moves[1], DOUBLE_STEP));
+  }
+
+  @Test
+  void enPassantIsFlagged() {
+    board.add(new Pawn(WHITE), new Pos("a2"));
+    Piece blackPawn = board.add(new Pawn(BLACK), new Pos("b4"));
+    game.makeMove(new Pos("a2"), new Pos("a4"));
+    int count = blackPawn.generateMoves(moves, 0);
+    boolean found = false;
+    for (int i = 0; i < count; i++) {
+      if (PackedMove.is(moves[i], EN_PASSANT | CAPTURE)) {
+        assertEquals(board.index(new Pos("a3")), PackedMove.to(moves[i]));
+        found = true;
+      }
+    }
+    assertTrue(found);
+  }
+
+  @Test
+  void castlingIsFlaggedAndConvertedToCastlingMove() {
+    board.add(new King(WHITE), new Pos("e1"));
+    board.add(new Rook(WHITE), new Pos("h1"));
+    int count = game.legalMoves(moves);
+    int castlingMoves = 0;
+    for (int i = 0; i < count; i++) {
+      if (PackedMove.is(moves[i], CASTLING)) {
+        castlingMoves++;
+        assertTrue(board.toMove(moves[i]) instanceof CastlingMove);
+      }
+    }
+    assertEquals(1, castlingMoves);
+  }
+
+  @Test
+  void castlingWithoutARookIsRejected() {
+    board.add(new King(WHITE), new Pos("e1"));
+    board.add(new Knight(WHITE), new Pos("a1"));
+    board.add(new Rook(BLACK), new Pos("b1"));
+    int kingside = PackedMove.of(board.index(new Pos("e1")), board.index(new Pos("g1")), CASTLING);
+    int queenside = PackedMove.of(board.index(new Pos("e1")), board.index(new Pos("c1")), CASTLING);
+    assertThrows(IllegalArgumentException.class, () -> board.toMove(kingside));
+    assertThrows(IllegalArgumentException.class, () -> board.toMove(queenside));
+    board.remove(new Pos("b1"));
+    assertThrows(IllegalArgumentException.class, () -> board.toMove(queenside));
+  }
+}
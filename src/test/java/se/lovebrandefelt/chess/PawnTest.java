@@ -1,5 +1,6 @@
 package se.lovebrandefelt.chess;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -99,4 +100,17 @@ class PawnTest {
     assertNull(board.get(new Pos("e8")));
     assertSame(pawn, board.get(new Pos("e7")));
   }
+
+  @Test
+  void everyMoveOntoTheLastRowIsExpandedIntoFourPromotions() {
+    Piece pawn = board.add(new Pawn(WHITE), new Pos("e7"));
+    board.add(new Rook(BLACK), new Pos("d8"));
+    board.add(new Rook(BLACK), new Pos("f8"));
+    int[] moves = new int[PackedMove.maxPieceMoves(board)];
+    int count = pawn.generateMoves(moves, 0);
+    assertEquals(12, count);
+    for (int i = 0; i < count; i++) {
+      assertTrue(PackedMove.promotion(moves[i]) != 0);
+    }
+  }
 }
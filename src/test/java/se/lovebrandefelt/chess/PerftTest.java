@@ -0,0 +1,113 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PerftTest {
+  private static final String KIWIPETE =
+      "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq";
+  private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w -";
+  private static final String POSITION_4 =
+      "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq";
+  private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ";
+  private static final String POSITION_6 =
+      "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w -";
+  private static final String CHESS_960 =
+      "bqnb1rkr/pp3ppp/3ppn2/2p5/5P2/P2P4/NPP1P1PP/BQ1BNRKR w HFhf";
+
+  @Test
+  void startPosition() {
+    Perft perft = new Perft(new Game(standardSetup(), WHITE));
+    assertEquals(20, perft.perft(1));
+    assertEquals(400, perft.perft(2));
+    assertEquals(8902, perft.perft(3));
+  }
+
+  @Test
+  void kiwipete() {
+    Perft perft = new Perft(position(KIWIPETE));
+    assertEquals(48, perft.perft(1));
+    assertEquals(2039, perft.perft(2));
+    assertEquals(97862, perft.perft(3));
+  }
+
+  @Test
+  void enPassantAndPromotionEdgeCases() {
+    Perft perft = new Perft(position(POSITION_3));
+    assertEquals(14, perft.perft(1));
+    assertEquals(191, perft.perft(2));
+    assertEquals(2812, perft.perft(3));
+  }
+
+  @Test
+  void promotionsAndCastlingUnderAttack() {
+    Perft perft = new Perft(position(POSITION_4));
+    assertEquals(6, perft.perft(1));
+    assertEquals(264, perft.perft(2));
+    assertEquals(9467, perft.perft(3));
+  }
+
+  @Test
+  void promotionByCapture() {
+    Perft perft = new Perft(position(POSITION_5));
+    assertEquals(44, perft.perft(1));
+    assertEquals(1486, perft.perft(2));
+    assertEquals(62379, perft.perft(3));
+  }
+
+  @Test
+  void middlegame() {
+    Perft perft = new Perft(position(POSITION_6));
+    assertEquals(46, perft.perft(1));
+    assertEquals(2079, perft.perft(2));
+    assertEquals(89890, perft.perft(3));
+  }
+
+  @Test
+  void chess960() {
+    Perft perft = new Perft(position(CHESS_960));
+    assertEquals(21, perft.perft(1));
+    assertEquals(528, perft.perft(2));
+    assertEquals(12189, perft.perft(3));
+  }
+
+  @Test
+  void divideSumsToPerft() {
+    Perft perft = new Perft(position(KIWIPETE));
+    Map<String, Long> divide = perft.divide(2);
+    assertEquals(48, divide.size());
+    assertEquals(2039, divide.values().stream().mapToLong(Long::longValue).sum());
+    assertEquals(43, (long) divide.get("e1g1"));
+  }
+
+  @Test
+  void benchmark() {
+    assumeTrue(Boolean.getBoolean("perft.benchmark"));
+    benchmark("start", new Game(standardSetup(), WHITE), 4);
+    benchmark("kiwipete", position(KIWIPETE), 3);
+    benchmark("position 3", position(POSITION_3), 4);
+    benchmark("position 4", position(POSITION_4), 3);
+    benchmark("position 5", position(POSITION_5), 3);
+    benchmark("position 6", position(POSITION_6), 3);
+    benchmark("chess 960", position(CHESS_960), 3);
+  }
+
+  private static void benchmark(String name, Game game, int depth) {
+    long start = System.nanoTime();
+    long nodes = new Perft(game).perft(depth);
+    long nanos = Math.max(System.nanoTime() - start, 1);
+    System.out.printf(
+        "%s perft(%d) = %d in %d ms, %d nodes/s%n",
+        name, depth, nodes, nanos / 1_000_000, nodes * 1_000_000_000 / nanos);
+  }
+
+  private static Game position(String fen) {
+    Board board = Fen.parse(fen);
+    return new Game(board, board.getSideToMove());
+  }
+}
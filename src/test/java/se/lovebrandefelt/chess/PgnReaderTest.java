@@ -0,0 +1,128 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PgnReaderTest {
+  private static final String PGN =
+      "[Event \"F/S Return Match\"]\n"
+          + "[Site \"Belgrade, Serbia JUG\"]\n"
+          + "[White \"Fischer, Robert J.\"]\n"
+          + "[Black \"Spassky, Boris V.\"]\n"
+          + "[Result \"1/2-1/2\"]\n"
+          + "\n"
+          + "1. e4 e5 2. Nf3 Nc6 3. Bb5 {This opening is called the Ruy Lopez.} 3... a6\n"
+          + "4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O 9. h3 Nb8 10. d4 Nbd7\n"
+          + "11. c4 c6 12. cxb5 axb5 13. Nc3 Bb7 14. Bg5 b4 15. Nb1 h6 16. Bh4 c5 17. dxe5\n"
+          + "Nxe4 18. Bxe7 Qxe7 19. exd6 Qf6 20. Nbd2 Nxd6 21. Nc4 Nxc4 22. Bxc4 Nb6\n"
+          + "23. Ne5 Rae8 24. Bxf7+ Rxf7 25. Nxf7 Rxe1+ 26. Qxe1 Kxf7 27. Qe3 Qg5 28. Qxg5\n"
+          + "hxg5 29. b3 Ke6 30. a3 Kd6 31. axb4 cxb4 32. Ra5 Nd5 33. f3 Bc8 34. Kf2 Bf5\n"
+          + "35. Ra7 g6 36. Ra6+ Kc5 37. Ke1 Nf4 38. g3 Nxh3 39. Kd2 Kb5 40. Rd6 Kc5 41. Ra6\n"
+          + "Nf2 42. g4 Bd3 43. Re6 1/2-1/2\n"
+          + "\n"
+          + "[Event \"Variations\"]\n"
+          + "[SetUp \"1\"]\n"
+          + "[FEN \"4k3/8/8/8/8/8/4P3/4K3 w - - 0 1\"]\n"
+          + "\n"
+          + "1.e4 $1 (1.e3 {quiet} (1.Kd2) Kd7) 1...Kd7 ; rest of line\n"
+          + "% escaped line 2. Zz9\n"
+          + "2.Kd2 1-0\n";
+
+  @Test
+  void gamesAreReplayed() throws IOException {
+    List<PgnGame> games = read(PGN, 1 << 16);
+    assertEquals(2, games.size());
+
+    PgnGame first = games.get(0);
+    assertNull(first.getError());
+    assertEquals("1/2-1/2", first.getResult());
+    assertEquals("Fischer, Robert J.", first.getTags().get("White"));
+    assertEquals(85, first.getGame().getBoard().getHistory().size());
+    assertEquals("Event", first.getTags().keySet().iterator().next());
+
+    PgnGame second = games.get(1);
+    assertNull(second.getError());
+    assertEquals("1-0", second.getResult());
+    assertEquals("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1", second.getTags().get("FEN"));
+    assertEquals("8/3k4/8/8/4P3/8/3K4/8 b - - 2 2", Fen.format(second.getGame().getBoard()));
+  }
+
+  @Test
+  void chunkBoundariesDoNotMatter() throws IOException {
+    List<PgnGame> whole = read(PGN, 1 << 16);
+    List<PgnGame> trickled = read(PGN, 3);
+    assertEquals(whole.size(), trickled.size());
+    for (int i = 0; i < whole.size(); i++) {
+      assertEquals(
+          whole.get(i).getGame().getBoard().getKey(),
+          trickled.get(i).getGame().getBoard().getKey());
+      assertEquals(whole.get(i).getTags(), trickled.get(i).getTags());
+    }
+  }
+
+  @Test
+  void illegalMovesAreReported() throws IOException {
+    List<PgnGame> games = read("1. e4 e5 2. Ke3 Nc6 *\n1. d4 d5", 1 << 16);
+    assertEquals(2, games.size());
+    assertNotNull(games.get(0).getError());
+    assertEquals(2, games.get(0).getGame().getBoard().getHistory().size());
+    assertNull(games.get(1).getError());
+    assertEquals("*", games.get(1).getResult());
+    assertEquals(2, games.get(1).getGame().getBoard().getHistory().size());
+  }
+
+  @Test
+  void filesAreRead() throws IOException {
+    Path path = Files.createTempFile("games", ".pgn");
+    try {
+      Files.write(path, PGN.getBytes(StandardCharsets.UTF_8));
+      List<PgnGame> games = new ArrayList<>();
+      assertEquals(2, PgnReader.read(path, games::add));
+      assertEquals(2, games.size());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static List<PgnGame> read(String pgn, int chunkSize) throws IOException {
+    ReadableByteChannel source =
+        Channels.newChannel(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8)));
+    ReadableByteChannel channel =
+        new ReadableByteChannel() {
+          @Override
+          public int read(ByteBuffer dst) throws IOException {
+            ByteBuffer chunk = ByteBuffer.allocate(Math.min(chunkSize, dst.remaining()));
+            int read = source.read(chunk);
+            chunk.flip();
+            dst.put(chunk);
+            return read;
+          }
+
+          @Override
+          public boolean isOpen() {
+            return source.isOpen();
+          }
+
+          @Override
+          public void close() throws IOException {
+            source.close();
+          }
+        };
+    List<PgnGame> games = new ArrayList<>();
+    new PgnReader(channel).read(games::add);
+    return games;
+  }
+}
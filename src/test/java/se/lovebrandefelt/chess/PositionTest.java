@@ -0,0 +1,132 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PositionTest {
+  private Game game;
+  private Board board;
+
+  @BeforeEach
+  void beforeEach() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+  }
+
+  @Test
+  void positionHasTheKeyOfTheBoard() {
+    game.makeMove("e4");
+    game.makeMove("Nf6");
+    game.makeMove("e5");
+    game.makeMove("d5");
+    Position position = Position.of(board);
+    assertEquals(board.getKey(), position.getKey());
+    assertEquals(WHITE, position.getSideToMove());
+    assertEquals(board.index(new Pos("d6")), position.getEnPassant());
+  }
+
+  @Test
+  void transposedPositionsAreEqual() {
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Nc3");
+    Position first = Position.of(board);
+
+    Board other = standardSetup();
+    Game otherGame = new Game(other, WHITE);
+    otherGame.makeMove("Nc3");
+    otherGame.makeMove("Nf6");
+    otherGame.makeMove("Nf3");
+    Position second = Position.of(other);
+
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    Set<Position> positions = new HashSet<>();
+    positions.add(first);
+    assertTrue(positions.contains(second));
+  }
+
+  @Test
+  void castlingRightsAndSideToMoveTellPositionsApart() {
+    Position start = Position.of(board);
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Ng1");
+    game.makeMove("Ng8");
+    assertEquals(start, Position.of(board));
+
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Rg1");
+    game.makeMove("Ng8");
+    game.makeMove("Rh1");
+    game.makeMove("Nf6");
+    game.makeMove("Ng1");
+    game.makeMove("Ng8");
+    assertNotEquals(start, Position.of(board));
+
+    Board blackToMove = standardSetup();
+    blackToMove.setSideToMove(BLACK);
+    assertNotEquals(start, Position.of(blackToMove));
+  }
+
+  @Test
+  void loadedBoardHasTheSameLegalMoves() {
+    for (String move : new String[] {"e4", "c5", "e5", "d5", "Ke2", "Qa5"}) {
+      game.makeMove(move);
+    }
+    Board loaded = Position.of(board).toBoard();
+    assertEquals(board.getKey(), loaded.getKey());
+    assertEquals(board.getCastlingRights(), loaded.getCastlingRights());
+    assertEquals(board.toString(), loaded.toString());
+    Map<Pos, Map<Pos, Move>> loadedMoves = new Game(loaded, loaded.getSideToMove()).legalMoves();
+    assertEquals(game.legalMoves().keySet(), loadedMoves.keySet());
+    for (Pos from : loadedMoves.keySet()) {
+      assertEquals(game.legalMoves().get(from).keySet(), loadedMoves.get(from).keySet());
+    }
+  }
+
+  @Test
+  void byteArrayRoundTrips() {
+    game.makeMove("d4");
+    game.makeMove("e5");
+    Position position = Position.of(board);
+    byte[] bytes = position.toByteArray();
+    assertEquals(Position.BYTES, bytes.length);
+    Position read = Position.fromByteArray(bytes);
+    assertEquals(position, read);
+    assertEquals(position.getKey(), read.getKey());
+  }
+
+  @Test
+  void silvermanPositionRoundTrips() {
+    Board silverman = Game.silvermanChessSetup();
+    Position position = Position.of(silverman);
+    Board loaded = position.toBoard();
+    assertTrue(loaded.get(new Pos(0, 2)) instanceof SilvermanKing);
+    assertFalse(loaded.get(new Pos(1, 0)).hasMoved());
+    assertEquals(position, Position.of(loaded));
+    assertEquals(position, Position.fromByteArray(position.toByteArray()));
+  }
+
+  @Test
+  void invalidInputIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> Position.of(new Board(9, 9)));
+    assertThrows(IllegalArgumentException.class, () -> Position.fromByteArray(new byte[3]));
+    byte[] bytes = Position.of(board).toByteArray();
+    bytes[0] = 9;
+    assertThrows(IllegalArgumentException.class, () -> Position.fromByteArray(bytes));
+  }
+}
@@ -0,0 +1,139 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchTest {
+  private Search search;
+
+  @BeforeEach
+  void beforeEach() {
+    search = new Search(new TranspositionTable(1));
+  }
+
+  @Test
+  void findsBackRankMateInOne() {
+    Board board = new Board(8, 8);
+    addMoved(board, new King(WHITE), "g1");
+    addMoved(board, new Rook(WHITE), "a1");
+    addMoved(board, new King(BLACK), "g8");
+    board.add(new Pawn(BLACK), new Pos("f7"));
+    board.add(new Pawn(BLACK), new Pos("g7"));
+    board.add(new Pawn(BLACK), new Pos("h7"));
+    Game game = new Game(board, WHITE);
+    int move = search.bestMove(game, SearchLimits.depth(3));
+    assertEquals(PackedMove.of(0, 56, PackedMove.QUIET), move);
+    assertEquals(Search.MATE - 1, search.getScore());
+  }
+
+  @Test
+  void findsMateInTwo() {
+    // 1. Rb7 Kg8 2. Ra8#
+    Board board = new Board(8, 8);
+    addMoved(board, new King(WHITE), "c3");
+    addMoved(board, new Rook(WHITE), "a1");
+    addMoved(board, new Rook(WHITE), "b2");
+    addMoved(board, new King(BLACK), "h8");
+    Game game = new Game(board, WHITE);
+    search.bestMove(game, SearchLimits.depth(5));
+    assertEquals(Search.MATE - 3, search.getScore());
+  }
+
+  @Test
+  void capturesAHangingQueen() {
+    Game game = new Game(standardSetup(), WHITE);
+    game.makeMove("e4");
+    game.makeMove("d5");
+    game.makeMove("Nc3");
+    game.makeMove("Qd6");
+    game.makeMove("exd5");
+    game.makeMove("Qg3");
+    int move = search.bestMove(game, SearchLimits.depth(3));
+    assertEquals(new Pos("g3"), game.getBoard().pos(PackedMove.to(move)));
+  }
+
+  @Test
+  void leavesTheGameInItsPosition() {
+    Game game = new Game(standardSetup(), WHITE);
+    game.makeMove("e4");
+    long key = game.getBoard().getKey();
+    int move = search.bestMove(game, SearchLimits.depth(4));
+    assertEquals(key, game.getBoard().getKey());
+    assertEquals(1, game.getBoard().getHistory().size());
+    assertEquals(BLACK, game.getCurrentPlayer());
+    int[] moves = new int[PackedMove.MAX_MOVES];
+    int count = game.legalMoves(moves);
+    boolean legal = false;
+    for (int i = 0; i < count; i++) {
+      legal |= moves[i] == move;
+    }
+    assertTrue(legal);
+  }
+
+  @Test
+  void stopsAtTheNodeLimit() {
+    Game game = new Game(standardSetup(), WHITE);
+    int move = search.bestMove(game, SearchLimits.nodes(5000));
+    assertTrue(search.getNodes() <= 5000);
+    assertTrue(move != 0);
+  }
+
+  @Test
+  void returnsNoMoveWhenCheckmated() {
+    Board board = new Board(8, 8);
+    addMoved(board, new King(WHITE), "a1");
+    addMoved(board, new Rook(WHITE), "b7");
+    addMoved(board, new Rook(WHITE), "a8");
+    addMoved(board, new King(BLACK), "g8");
+    assertEquals(0, search.bestMove(new Game(board, BLACK), SearchLimits.depth(3)));
+  }
+
+  @Test
+  void multipleThreadsFindTheSameMate() {
+    Board board = new Board(8, 8);
+    addMoved(board, new King(WHITE), "c3");
+    addMoved(board, new Rook(WHITE), "a1");
+    addMoved(board, new Rook(WHITE), "b2");
+    addMoved(board, new King(BLACK), "h8");
+    Game game = new Game(board, WHITE);
+    long key = board.getKey();
+    search = new Search(new TranspositionTable(1), 4);
+    search.bestMove(game, SearchLimits.depth(5));
+    assertEquals(Search.MATE - 3, search.getScore());
+    assertEquals(key, board.getKey());
+  }
+
+  @Test
+  void multipleThreadsShareTheNodeLimit() {
+    search = new Search(new TranspositionTable(1), 4);
+    int move = search.bestMove(new Game(standardSetup(), WHITE), SearchLimits.nodes(20000));
+    assertTrue(search.getNodes() <= 20000 + 4 * 1024);
+    assertTrue(move != 0);
+  }
+
+  @Test
+  void repetitionsOfPositionsBeforeTheRootAreDraws() {
+    Board board = Fen.parse("6nk/8/8/8/8/8/1R6/1Q4K1 b - - 0 1");
+    Game game = new Game(board, BLACK);
+    for (String move : new String[] {"Nf6", "Kg2", "Ng8", "Kg1"}) {
+      game.makeMove(move);
+    }
+    for (int threads = 1; threads <= 2; threads++) {
+      search = new Search(new TranspositionTable(1), threads);
+      int move = search.bestMove(game, SearchLimits.depth(4));
+      assertEquals(0, search.getScore());
+      assertEquals(new Pos("f6"), board.pos(PackedMove.to(move)));
+    }
+  }
+
+  private static void addMoved(Board board, Piece piece, String posString) {
+    piece.setMoveCount(1);
+    board.add(piece, new Pos(posString));
+  }
+}
@@ -0,0 +1,88 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static se.lovebrandefelt.chess.TranspositionTable.Bound.EXACT;
+import static se.lovebrandefelt.chess.TranspositionTable.Bound.LOWER;
+import static se.lovebrandefelt.chess.TranspositionTable.Bound.UPPER;
+import static se.lovebrandefelt.chess.TranspositionTable.NO_ENTRY;
+import static se.lovebrandefelt.chess.TranspositionTable.Replacement.ALWAYS_REPLACE;
+import static se.lovebrandefelt.chess.TranspositionTable.Replacement.DEPTH_PREFERRED;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+  @Test
+  void storedEntriesCanBeProbed() {
+    TranspositionTable table = new TranspositionTable(1);
+    int move = PackedMove.of(12, 28, PackedMove.DOUBLE_STEP);
+    table.store(42, 5, LOWER, move, -300);
+    long data = table.probe(42);
+    assertEquals(move, TranspositionTable.move(data));
+    assertEquals(-300, TranspositionTable.score(data));
+    assertEquals(5, TranspositionTable.depth(data));
+    assertEquals(LOWER, TranspositionTable.bound(data));
+    assertEquals(NO_ENTRY, table.probe(43));
+  }
+
+  @Test
+  void depthPreferredKeepsDeeperEntries() {
+    TranspositionTable table = new TranspositionTable(1, 1, DEPTH_PREFERRED);
+    table.store(7, 8, LOWER, 1, 10);
+    table.store(7, 3, UPPER, 2, 20);
+    assertEquals(8, TranspositionTable.depth(table.probe(7)));
+    table.newSearch();
+    table.store(7, 3, UPPER, 2, 20);
+    assertEquals(3, TranspositionTable.depth(table.probe(7)));
+  }
+
+  @Test
+  void alwaysReplaceOverwritesEntries() {
+    TranspositionTable table = new TranspositionTable(1, 1, ALWAYS_REPLACE);
+    long other = table.capacity();
+    table.store(0, 8, EXACT, 1, 10);
+    table.store(other, 1, EXACT, 2, 20);
+    assertEquals(NO_ENTRY, table.probe(0));
+    assertEquals(20, TranspositionTable.score(table.probe(other)));
+  }
+
+  @Test
+  void bestMoveIsKeptWhenNewResultHasNone() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(9, 2, LOWER, 77, 0);
+    table.store(9, 4, UPPER, 0, 0);
+    assertEquals(77, TranspositionTable.move(table.probe(9)));
+  }
+
+  @Test
+  void concurrentAccessNeverReturnsTornEntries() throws InterruptedException {
+    TranspositionTable table = new TranspositionTable(1, 2, ALWAYS_REPLACE);
+    AtomicBoolean torn = new AtomicBoolean(false);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int seed = t;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < 200000; i++) {
+                  long key = (i * 31L + seed) % 5000 + 1;
+                  table.store(key, (int) (key % 100), EXACT, (int) key, (int) (key % 1000));
+                  long data = table.probe(key ^ 1);
+                  if (data != NO_ENTRY && TranspositionTable.move(data) != (key ^ 1)) {
+                    torn.set(true);
+                  }
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(torn.get());
+  }
+}
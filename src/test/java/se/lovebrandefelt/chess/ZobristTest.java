@@ -0,0 +1,94 @@
+package se.lovebrandefelt.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static se.lovebrandefelt.chess.Color.BLACK;
+import static se.lovebrandefelt.chess.Color.WHITE;
+import static se.lovebrandefelt.chess.Game.standardSetup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ZobristTest {
+  private Game game;
+  private Board board;
+
+  @BeforeEach
+  void beforeEach() {
+    board = standardSetup();
+    game = new Game(board, WHITE);
+  }
+
+  @Test
+  void undoingEveryMoveRestoresTheKey() {
+    game.makeMove("e4");
+    game.makeMove("d5");
+    long key = board.getKey();
+    int[] moves = new int[PackedMove.MAX_MOVES];
+    int count = game.legalMoves(moves);
+    for (int i = 0; i < count; i++) {
+      board.move(board.toMove(moves[i]));
+      assertNotEquals(key, board.getKey());
+      board.undoMove();
+      assertEquals(key, board.getKey());
+    }
+  }
+
+  @Test
+  void transposedPositionsHaveTheSameKey() {
+    long key = board.getKey();
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Ng1");
+    game.makeMove("Ng8");
+    assertEquals(key, board.getKey());
+    assertEquals(key, board.getKey(0));
+  }
+
+  @Test
+  void sideToMoveChangesTheKey() {
+    long key = board.getKey();
+    board.setSideToMove(BLACK);
+    assertNotEquals(key, board.getKey());
+  }
+
+  @Test
+  void castlingRightsChangeTheKey() {
+    long key = board.getKey();
+    game.makeMove("Nf3");
+    game.makeMove("Nf6");
+    game.makeMove("Rg1");
+    game.makeMove("Ng8");
+    game.makeMove("Rh1");
+    game.makeMove("Nf6");
+    game.makeMove("Ng1");
+    game.makeMove("Ng8");
+    assertEquals(0, board.getCastlingRights() & 1L << board.index(new Pos("h1")));
+    assertNotEquals(key, board.getKey());
+  }
+
+  @Test
+  void doubleStepsSetTheEnPassantSquare() {
+    game.makeMove("e4");
+    game.makeMove("d5");
+    game.makeMove("e5");
+    game.makeMove("f5");
+    assertEquals(board.index(new Pos("f6")), board.getEnPassant());
+    game.makeMove("Nf3");
+    assertEquals(-1, board.getEnPassant());
+    board.undoMove();
+    assertEquals(board.index(new Pos("f6")), board.getEnPassant());
+  }
+
+  @Test
+  void doubleStepsNoPawnCanCaptureDoNotChangeTheKey() {
+    game.makeMove("e4");
+    assertEquals(-1, board.getEnPassant());
+    long key = board.getKey();
+    game.makeMove("Nf6");
+    game.makeMove("Nf3");
+    game.makeMove("Ng8");
+    game.makeMove("Ng1");
+    assertEquals(key, board.getKey());
+  }
+}
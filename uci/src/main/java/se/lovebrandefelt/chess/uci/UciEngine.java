@@ -0,0 +1,316 @@
+package se.lovebrandefelt.chess.uci;
+
+import static se.lovebrandefelt.chess.Color.WHITE;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import se.lovebrandefelt.chess.Board;
+import se.lovebrandefelt.chess.Fen;
+import se.lovebrandefelt.chess.Game;
+import se.lovebrandefelt.chess.Notation;
+import se.lovebrandefelt.chess.Search;
+import se.lovebrandefelt.chess.SearchLimits;
+import se.lovebrandefelt.chess.TranspositionTable;
+
+/**
+ * Speaks the Universal Chess Interface. Commands are read on the calling thread while a search
+ * runs on a thread of its own, so that stop, isready and quit are answered during a search.
+ */
+public class UciEngine {
+  private static final int DEFAULT_HASH = 16;
+  private static final int MAX_HASH = 4096;
+  private static final int MAX_THREADS = 256;
+  private static final int DEFAULT_MOVES_TO_GO = 30;
+  private static final long MOVE_OVERHEAD = 30;
+
+  private final BufferedReader in;
+  private final PrintStream out;
+  private TranspositionTable table;
+  private int threads;
+  private Game game;
+  private Thread searchThread;
+  private Search search;
+  private volatile boolean infinite;
+
+  /**
+   * Creates a new engine reading commands from the specified reader and writing responses to the
+   * specified stream.
+   *
+   * @param in the reader to read commands from
+   * @param out the stream to write responses to
+   */
+  public UciEngine(BufferedReader in, PrintStream out) {
+    this.in = in;
+    this.out = out;
+    table = new TranspositionTable(DEFAULT_HASH);
+    threads = 1;
+    game = new Game(Game.standardSetup(), WHITE);
+  }
+
+  /**
+   * Reads and runs commands until quit is read or the input ends.
+   *
+   * @throws IOException if the input can not be read
+   */
+  public void run() throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      String[] tokens = line.trim().split("\\s+");
+      switch (tokens[0]) {
+        case "uci":
+          send("id name lovebr-chess");
+          send("id author the lovebr-chess authors");
+          send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+          send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+          send("uciok");
+          break;
+        case "isready":
+          send("readyok");
+          break;
+        case "setoption":
+          stopSearch();
+          setOption(tokens);
+          break;
+        case "ucinewgame":
+          stopSearch();
+          table.clear();
+          break;
+        case "position":
+          stopSearch();
+          setPosition(tokens);
+          break;
+        case "go":
+          stopSearch();
+          go(tokens);
+          break;
+        case "stop":
+          stopSearch();
+          break;
+        case "quit":
+          stopSearch();
+          return;
+        default:
+      }
+    }
+    stopSearch();
+  }
+
+  private void setOption(String[] tokens) {
+    String name = value(tokens, "name");
+    String value = value(tokens, "value");
+    if (name == null || value == null) {
+      return;
+    }
+    try {
+      if (name.equalsIgnoreCase("Hash")) {
+        table = new TranspositionTable(clamp(Integer.parseInt(value), 1, MAX_HASH));
+      } else if (name.equalsIgnoreCase("Threads")) {
+        threads = clamp(Integer.parseInt(value), 1, MAX_THREADS);
+      }
+    } catch (NumberFormatException e) {
+      send("info string Invalid value " + value + " for option " + name);
+    }
+  }
+
+  private void setPosition(String[] tokens) {
+    int index = 1;
+    Board board;
+    if (index < tokens.length && tokens[index].equals("startpos")) {
+      board = Game.standardSetup();
+      index++;
+    } else if (index < tokens.length && tokens[index].equals("fen")) {
+      StringBuilder fen = new StringBuilder();
+      for (index++; index < tokens.length && !tokens[index].equals("moves"); index++) {
+        fen.append(fen.length() == 0 ? "" : " ").append(tokens[index]);
+      }
+      try {
+        board = Fen.parse(fen.toString());
+      } catch (IllegalArgumentException e) {
+        send("info string " + e.getMessage());
+        return;
+      }
+    } else {
+      return;
+    }
+    Game newGame = new Game(board, board.getSideToMove());
+    if (index < tokens.length && tokens[index].equals("moves")) {
+      Notation notation = new Notation(newGame);
+      for (index++; index < tokens.length; index++) {
+        try {
+          newGame.move(notation.parse(tokens[index], 0, tokens[index].length()));
+        } catch (IllegalArgumentException e) {
+          send("info string " + e.getMessage());
+          return;
+        }
+      }
+    }
+    game = newGame;
+  }
+
+  private void go(String[] tokens) {
+    int depth = Search.MAX_PLY;
+    long nodes = Long.MAX_VALUE;
+    long millis = Long.MAX_VALUE;
+    long time = -1;
+    long increment = 0;
+    int movesToGo = DEFAULT_MOVES_TO_GO;
+    boolean white = game.getCurrentPlayer() == WHITE;
+    infinite = false;
+    for (int i = 1; i < tokens.length; i++) {
+      String token = tokens[i];
+      if (token.equals("infinite") || token.equals("ponder")) {
+        infinite = true;
+        continue;
+      }
+      if (i + 1 == tokens.length) {
+        break;
+      }
+      try {
+        long value = Long.parseLong(tokens[i + 1]);
+        switch (token) {
+          case "depth":
+            depth = (int) clamp(value, 1, Search.MAX_PLY);
+            break;
+          case "nodes":
+            nodes = Math.max(value, 1);
+            break;
+          case "movetime":
+            millis = Math.max(value, 1);
+            break;
+          case "wtime":
+            time = white ? value : time;
+            break;
+          case "btime":
+            time = white ? time : value;
+            break;
+          case "winc":
+            increment = white ? value : increment;
+            break;
+          case "binc":
+            increment = white ? increment : value;
+            break;
+          case "movestogo":
+            movesToGo = (int) clamp(value, 1, Integer.MAX_VALUE);
+            break;
+          default:
+            continue;
+        }
+        i++;
+      } catch (NumberFormatException ignored) {
+        // Not a value, so the token is read as the next parameter
+      }
+    }
+    if (time >= 0 && millis == Long.MAX_VALUE) {
+      long budget = time / movesToGo + increment * 3 / 4;
+      millis = clamp(Math.min(budget, time - MOVE_OVERHEAD), 1, Long.MAX_VALUE);
+    }
+
+    SearchLimits limits = new SearchLimits(depth, nodes, millis);
+    Game searched = game;
+    Search newSearch = new Search(table, threads);
+    newSearch.setListener(
+        (iterationDepth, score, iterationNodes, move) ->
+            sendInfo(searched, iterationDepth, score, iterationNodes, move));
+    search = newSearch;
+    long start = System.nanoTime();
+    searchThread =
+        new Thread(
+            () -> {
+              int move = newSearch.bestMove(searched, limits);
+              waitWhileInfinite();
+              long elapsed = (System.nanoTime() - start) / 1_000_000;
+              send("info nodes " + newSearch.getNodes() + " time " + elapsed);
+              send("bestmove " + (move == 0 ? "0000" : Notation.uci(searched.getBoard(), move)));
+            },
+            "uci-search");
+    searchThread.start();
+  }
+
+  private void sendInfo(Game game, int depth, int score, long nodes, int move) {
+    String scoreString;
+    if (Math.abs(score) >= Search.MATE - Search.MAX_PLY) {
+      int plies = Search.MATE - Math.abs(score);
+      scoreString = "mate " + (score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+    } else {
+      scoreString = "cp " + score;
+    }
+    send(
+        "info depth "
+            + depth
+            + " score "
+            + scoreString
+            + " nodes "
+            + nodes
+            + " hashfull "
+            + table.hashfull()
+            + " pv "
+            + Notation.uci(game.getBoard(), move));
+  }
+
+  // Waits for stop after a search for go infinite or go ponder, which must not report its best
+  // move before it is told to stop
+  private synchronized void waitWhileInfinite() {
+    while (infinite) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  // Stops the running search, if any, and waits for it to report its best move. The stop is
+  // repeated while waiting, in case it reached the search before the search had started.
+  private void stopSearch() {
+    if (searchThread == null) {
+      return;
+    }
+    synchronized (this) {
+      infinite = false;
+      notifyAll();
+    }
+    while (searchThread.isAlive()) {
+      search.stop();
+      try {
+        searchThread.join(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    searchThread = null;
+    search = null;
+  }
+
+  private void send(String line) {
+    synchronized (out) {
+      out.println(line);
+      out.flush();
+    }
+  }
+
+  private static String value(String[] tokens, String key) {
+    for (int i = 0; i < tokens.length - 1; i++) {
+      if (tokens[i].equals(key)) {
+        StringBuilder value = new StringBuilder(tokens[i + 1]);
+        for (int j = i + 2;
+            j < tokens.length && !tokens[j].equals("name") && !tokens[j].equals("value");
+            j++) {
+          value.append(' ').append(tokens[j]);
+        }
+        return value.toString();
+      }
+    }
+    return null;
+  }
+
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  private static long clamp(long value, long min, long max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
@@ -0,0 +1,106 @@
+package se.lovebrandefelt.chess.uci;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class UciEngineTest {
+  // Runs the engine on the specified commands and returns the lines it wrote. The engine stops a
+  // running search when its input ends, so the end of the input is held back until a search
+  // started by the commands has reported its best move.
+  private static List<String> run(String... commands) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+    boolean searching = Arrays.stream(commands).anyMatch(command -> command.startsWith("go"));
+    BufferedReader in =
+        new BufferedReader(new StringReader(String.join("\n", commands))) {
+          @Override
+          public String readLine() throws IOException {
+            String line = super.readLine();
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (line == null
+                && searching
+                && !output(bytes).contains("bestmove")
+                && System.nanoTime() < deadline) {
+              Thread.yield();
+            }
+            return line;
+          }
+        };
+    new UciEngine(in, out).run();
+    return Arrays.asList(output(bytes).split("\n"));
+  }
+
+  private static String output(ByteArrayOutputStream bytes) {
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static String last(List<String> lines) {
+    return lines.get(lines.size() - 1);
+  }
+
+  @Test
+  void handshakeIsAnswered() throws IOException {
+    List<String> lines = run("uci", "isready");
+    assertEquals("id name lovebr-chess", lines.get(0));
+    assertEquals("uciok", lines.get(lines.size() - 2));
+    assertEquals("readyok", last(lines));
+  }
+
+  @Test
+  void searchFromStartPositionWithMovesReportsBestMove() throws IOException {
+    List<String> lines =
+        run(
+            "uci",
+            "isready",
+            "position startpos moves e2e4 d7d5 b1c3 d8d6 e4d5 d6g3",
+            "go depth 3");
+    assertTrue(lines.contains("readyok"));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith("info depth 3 ")));
+    assertTrue(last(lines).matches("bestmove [fh]2g3"));
+  }
+
+  @Test
+  void searchFromFenWithMovesReportsMate() throws IOException {
+    List<String> lines =
+        run("position fen 6k1/5ppp/8/8/8/8/8/R5K1 b - - 0 1 moves g8h8", "go depth 3");
+    assertTrue(lines.stream().anyMatch(line -> line.contains(" score mate 1 ")));
+    assertEquals("bestmove a1a8", last(lines));
+  }
+
+  @Test
+  void clockParametersOfTheSideToMoveLimitTheSearch() throws IOException {
+    long start = System.nanoTime();
+    List<String> lines =
+        run("position startpos moves e2e4", "go wtime 100000 btime 100 winc 0 binc 0 movestogo 1");
+    assertTrue(last(lines).matches("bestmove [a-h]7[a-h][56]|bestmove [bg]8[a-h]6"));
+    lines = run("position startpos", "go movetime 50");
+    assertTrue(last(lines).matches("bestmove [a-h]2[a-h][34]|bestmove [bg]1[a-h]3"));
+    assertTrue(System.nanoTime() - start < 5_000_000_000L);
+  }
+
+  @Test
+  void manyMovesToGoShortenTheBudget() throws IOException {
+    // 30 seconds for 1000 moves leave 30 milliseconds for this move rather than a thirtieth
+    List<String> lines = run("position startpos", "go wtime 30000 btime 30000 movestogo 1000");
+    String info = lines.get(lines.size() - 2);
+    long millis = Long.parseLong(info.substring(info.lastIndexOf(' ') + 1));
+    assertTrue(millis < 500, info);
+  }
+
+  @Test
+  void illegalMovesLeaveThePositionUnchanged() throws IOException {
+    List<String> lines = run("position startpos moves e2e5", "go depth 1");
+    assertTrue(lines.get(0).startsWith("info string "));
+    assertTrue(last(lines).matches("bestmove [a-h][12][a-h][34]"));
+  }
+}